@@ -0,0 +1,153 @@
+package ru.evtu.kursovoy_new.bench;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.cfg.MapperBuilder;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import ru.evtu.kursovoy_new.second.Car;
+import ru.evtu.kursovoy_new.second.CarPackCodec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Сравнение форматов ответа для списка автомобилей: размер (без сжатия и с gzip)
+ * и время кодирования и декодирования.
+ *
+ * Данные синтетические, но с распределением, близким к реальному: несколько десятков марок,
+ * повторяющиеся владельцы, даты регистрации за последние годы. Каждый формат сначала
+ * прогревается, затем выводится медиана по замерам.
+ *
+ * Запуск: ./gradlew bench [-PbenchCars=100000]
+ */
+public class CarFormatBenchmark {
+
+    private static final String[] BRANDS = {"TOYOTA", "LADA", "KIA", "HYUNDAI", "BMW", "MERCEDES", "VOLKSWAGEN",
+            "SKODA", "RENAULT", "NISSAN", "MAZDA", "FORD", "AUDI", "CHERY", "HAVAL", "GEELY", "MITSUBISHI", "LEXUS"};
+
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 30;
+
+    private interface Format {
+        byte[] encode(List<Car> cars) throws IOException;
+
+        List<?> decode(byte[] bytes) throws IOException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        List<Car> cars = generate(count, new Random(42));
+
+        Map<String, Format> formats = new LinkedHashMap<>();
+        formats.put("application/json", jackson(JsonMapper.builder()));
+        formats.put("application/cbor", jackson(CBORMapper.builder()));
+        formats.put("application/x-jackson-smile", jackson(SmileMapper.builder()));
+        formats.put(CarPackCodec.MEDIA_TYPE, new Format() {
+            @Override
+            public byte[] encode(List<Car> cars) throws IOException {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                CarPackCodec.write(cars, out);
+                return out.toByteArray();
+            }
+
+            @Override
+            public List<?> decode(byte[] bytes) throws IOException {
+                return CarPackCodec.read(new ByteArrayInputStream(bytes), Car.class);
+            }
+        });
+
+        System.out.printf("Автомобилей: %d%n", count);
+        System.out.printf("%-28s %12s %12s %14s %14s%n", "Формат", "Байт", "Байт (gzip)", "Кодирование", "Декодирование");
+        for (Map.Entry<String, Format> entry : formats.entrySet()) {
+            Format format = entry.getValue();
+            byte[] encoded = format.encode(cars);
+            if (format.decode(encoded).size() != count) {
+                throw new IllegalStateException(entry.getKey() + ": декодировано другое число записей");
+            }
+            long encodeNanos = measure(() -> format.encode(cars));
+            long decodeNanos = measure(() -> format.decode(encoded));
+            System.out.printf("%-28s %12d %12d %11.2f мс %11.2f мс%n", entry.getKey(), encoded.length,
+                    gzipSize(encoded), encodeNanos / 1e6, decodeNanos / 1e6);
+        }
+    }
+
+    /**
+     * Настройки совпадают с ObjectMapper приложения: даты записываются строками ISO-8601.
+     */
+    private static Format jackson(MapperBuilder<?, ?> builder) {
+        ObjectMapper mapper = builder.addModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        TypeReference<List<Car>> type = new TypeReference<>() {
+        };
+        return new Format() {
+            @Override
+            public byte[] encode(List<Car> cars) throws IOException {
+                return mapper.writeValueAsBytes(cars);
+            }
+
+            @Override
+            public List<?> decode(byte[] bytes) throws IOException {
+                return mapper.readValue(bytes, type);
+            }
+        };
+    }
+
+    private interface Action {
+        Object run() throws IOException;
+    }
+
+    private static long measure(Action action) throws IOException {
+        int sink = 0; // Результат используется, чтобы JIT не удалил вызов
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink += System.identityHashCode(action.run());
+        }
+        long[] samples = new long[MEASURED_ROUNDS];
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            sink += System.identityHashCode(action.run());
+            samples[i] = System.nanoTime() - start;
+        }
+        if (sink == 42) {
+            System.out.print("");
+        }
+        Arrays.sort(samples);
+        return samples[MEASURED_ROUNDS / 2];
+    }
+
+    private static int gzipSize(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.size();
+    }
+
+    private static List<Car> generate(int count, Random random) {
+        LocalDate today = LocalDate.now();
+        List<Car> cars = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int brand = random.nextInt(BRANDS.length);
+            long owner = random.nextInt(Math.max(1, count / 3));
+            Car car = new Car();
+            car.setId(1_000L + i);
+            car.setBrand(BRANDS[brand]);
+            car.setBrandId((long) brand + 1);
+            car.setModelId(brand * 50L + random.nextInt(50) + 1);
+            car.setReleaseYear(1995 + random.nextInt(30));
+            car.setRegDate(today.minusDays(random.nextInt(3650)));
+            car.setOwnerId(owner + 1);
+            car.setOwnerName("Владелец " + (owner + 1));
+            cars.add(car);
+        }
+        return cars;
+    }
+}
@@ -2,8 +2,10 @@ package ru.evtu.kursovoy_new;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling // Периодические задачи (пульс SSE и т.п.)
 public class KursovoyNewApplication {
 
     public static void main(String[] args) {
@@ -3,13 +3,23 @@ package ru.evtu.kursovoy_new;
 // Импорт необходимых классов и аннотаций из Spring Security
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.annotation.web.configurers.LogoutConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.AuthorizationFilter;
+import org.springframework.security.web.context.NullSecurityContextRepository;
+import org.springframework.security.web.util.matcher.AndRequestMatcher;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.cors.CorsConfigurationSource;
+import ru.evtu.kursovoy_new.api.ApiTokenAuthenticationFilter;
+import ru.evtu.kursovoy_new.api.ApiTokenVerifier;
 
 import java.util.List;
 
@@ -23,6 +33,43 @@ import java.util.List;
 @EnableWebSecurity // Включает поддержку безопасности в приложении
 public class SecurityConfig {
 
+    /**
+     * Отдельная облегчённая цепочка для машинных клиентов API.
+     *
+     * Применяется только к запросам /cars/api/**, несущим токен (Bearer или X-API-Key),
+     * и только если задан хотя бы один клиент API.
+     * Цепочка не создаёт и не читает HTTP-сессии, не использует CSRF, форму входа и кэш
+     * запросов, поэтому накладные расходы на запрос постоянны и сервер не хранит
+     * состояние клиента. Браузерные запросы без токена обрабатываются основной цепочкой.
+     *
+     * @param http     объект HttpSecurity, используемый для настройки безопасности
+     * @param verifier сервис проверки токенов
+     * @return цепочка фильтров для API
+     * @throws Exception если возникает ошибка при настройке безопасности
+     */
+    @Bean
+    @Order(1)
+    public SecurityFilterChain apiTokenFilterChain(HttpSecurity http, ApiTokenVerifier verifier) throws Exception {
+        RequestMatcher apiWithToken = new AndRequestMatcher(
+                new AntPathRequestMatcher("/cars/api/**"),
+                request -> verifier.isConfigured() && ApiTokenAuthenticationFilter.hasToken(request));
+
+        http
+                .securityMatcher(apiWithToken)
+                .csrf(AbstractHttpConfigurer::disable)
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .securityContext(context -> context.securityContextRepository(new NullSecurityContextRepository()))
+                .requestCache(AbstractHttpConfigurer::disable)
+                .anonymous(AbstractHttpConfigurer::disable)
+                .formLogin(AbstractHttpConfigurer::disable)
+                .httpBasic(AbstractHttpConfigurer::disable)
+                .logout(AbstractHttpConfigurer::disable)
+                .addFilterBefore(new ApiTokenAuthenticationFilter(verifier), AuthorizationFilter.class)
+                .authorizeHttpRequests(authorize -> authorize.anyRequest().hasRole("API"));
+
+        return http.build();
+    }
+
     /**
      * Метод, создающий цепочку фильтров безопасности.
      *
@@ -31,6 +78,7 @@ public class SecurityConfig {
      * @throws Exception если возникает ошибка при настройке безопасности
      */
     @Bean
+    @Order(2)
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         // Настройка безопасности для HTTP-запросов
         // Разрешить доступ к функции выхода без аутентификации
@@ -42,6 +90,8 @@ public class SecurityConfig {
                 )
                 .authorizeHttpRequests(authorize -> authorize
                         .requestMatchers("/api/**").permitAll() // Разрешаем доступ к API без аутентификации
+                        .requestMatchers("/css/**", "/vendor/**").permitAll() // Статические файлы кэшируются как общедоступные
+                        .requestMatchers("/actuator/health/**").permitAll() // Пробы liveness/readiness для балансировщика
                         .anyRequest().authenticated() // Все остальные запросы требуют аутентификации
                 )
                 // Настройка формы входа
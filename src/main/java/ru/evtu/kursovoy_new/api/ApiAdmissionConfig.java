@@ -0,0 +1,55 @@
+package ru.evtu.kursovoy_new.api;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Конфигурация контроля допуска для REST API автомобилей.
+ *
+ * Фильтр регистрируется только для /cars/api/* и выполняется раньше цепочки
+ * Spring Security, чтобы отклонять лишние запросы до аутентификации и обращения к БД.
+ */
+@Configuration
+public class ApiAdmissionConfig {
+
+    /**
+     * Порядок фильтра: перед DelegatingFilterProxy Spring Security (-100).
+     */
+    private static final int ADMISSION_FILTER_ORDER = -110;
+
+    @Bean
+    public ApiAdmissionFilter apiAdmissionFilter(
+            @Value("${cars.api.limits.expensive.capacity:5}") double expensiveCapacity,
+            @Value("${cars.api.limits.expensive.per-second:1}") double expensivePerSecond,
+            @Value("${cars.api.limits.write.capacity:20}") double writeCapacity,
+            @Value("${cars.api.limits.write.per-second:5}") double writePerSecond,
+            @Value("${cars.api.limits.default.capacity:50}") double defaultCapacity,
+            @Value("${cars.api.limits.default.per-second:20}") double defaultPerSecond,
+            @Value("${cars.api.limits.expensive.max-concurrent:4}") int maxConcurrentExpensive,
+            @Value("${cars.api.limits.expensive.queue-timeout-ms:100}") long queueTimeoutMs,
+            @Value("${cars.api.limits.max-clients:10000}") int maxClients,
+            ApiTokenVerifier tokenVerifier,
+            MeterRegistry meterRegistry) {
+        Map<ApiAdmissionFilter.EndpointClass, ApiAdmissionFilter.Limit> limits =
+                new EnumMap<>(ApiAdmissionFilter.EndpointClass.class);
+        limits.put(ApiAdmissionFilter.EndpointClass.EXPENSIVE, new ApiAdmissionFilter.Limit(expensiveCapacity, expensivePerSecond));
+        limits.put(ApiAdmissionFilter.EndpointClass.WRITE, new ApiAdmissionFilter.Limit(writeCapacity, writePerSecond));
+        limits.put(ApiAdmissionFilter.EndpointClass.DEFAULT, new ApiAdmissionFilter.Limit(defaultCapacity, defaultPerSecond));
+        return new ApiAdmissionFilter(limits, maxConcurrentExpensive, queueTimeoutMs, maxClients, tokenVerifier,
+                meterRegistry);
+    }
+
+    @Bean
+    public FilterRegistrationBean<ApiAdmissionFilter> apiAdmissionFilterRegistration(ApiAdmissionFilter filter) {
+        FilterRegistrationBean<ApiAdmissionFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/cars/api/*");
+        registration.setOrder(ADMISSION_FILTER_ORDER);
+        return registration;
+    }
+}
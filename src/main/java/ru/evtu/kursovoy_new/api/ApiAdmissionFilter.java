@@ -0,0 +1,194 @@
+package ru.evtu.kursovoy_new.api;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фильтр контроля допуска для /cars/api/**.
+ *
+ * Для каждой пары «клиент × класс эндпоинта» ведётся своё ведро жетонов; при его исчерпании
+ * запрос сразу отклоняется с кодом 429. Дорогие эндпоинты (полные выборки таблицы)
+ * дополнительно ограничены по числу одновременных выполнений: если свободного слота
+ * не нашлось за короткое время ожидания, возвращается 503. В обоих случаях клиент получает
+ * заголовок Retry-After, а отказ учитывается в метрике cars.api.admission.rejected.
+ *
+ * Фильтр выполняется до аутентификации, поэтому клиент определяется по токену только тогда,
+ * когда токен уже проверен {@link ApiTokenVerifier}; иначе — по адресу отправителя. Число
+ * отдельных вёдер ограничено: клиенты сверх предела делят одно общее ведро на класс эндпоинта.
+ */
+public class ApiAdmissionFilter extends OncePerRequestFilter {
+
+    /**
+     * Класс эндпоинта с точки зрения стоимости обработки.
+     */
+    public enum EndpointClass {
+        EXPENSIVE, WRITE, DEFAULT
+    }
+
+    /**
+     * Параметры ограничения для класса эндпоинта.
+     *
+     * @param capacity        ёмкость ведра (допустимый всплеск запросов)
+     * @param refillPerSecond скорость пополнения ведра в запросах в секунду
+     */
+    public record Limit(double capacity, double refillPerSecond) {
+    }
+
+    private static final long IDLE_BUCKET_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    private final Map<EndpointClass, Limit> limits;
+    private final Semaphore expensiveSlots;
+    private final long queueTimeoutMs;
+    private final int maxClients;
+    private final ApiTokenVerifier tokenVerifier;
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final Map<EndpointClass, TokenBucket> overflowBuckets = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, Counter> rateLimited = new EnumMap<>(EndpointClass.class);
+    private final Counter concurrencyLimited;
+
+    public ApiAdmissionFilter(Map<EndpointClass, Limit> limits, int maxConcurrentExpensive,
+                              long queueTimeoutMs, int maxClients, ApiTokenVerifier tokenVerifier,
+                              MeterRegistry meterRegistry) {
+        this.limits = limits;
+        this.expensiveSlots = new Semaphore(maxConcurrentExpensive);
+        this.queueTimeoutMs = queueTimeoutMs;
+        this.maxClients = maxClients;
+        this.tokenVerifier = tokenVerifier;
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            Limit limit = limits.get(endpointClass);
+            overflowBuckets.put(endpointClass, new TokenBucket(limit.capacity(), limit.refillPerSecond()));
+            rateLimited.put(endpointClass, Counter.builder("cars.api.admission.rejected")
+                    .description("Запросы к API, отклонённые контролем допуска")
+                    .tag("reason", "rate_limit")
+                    .tag("class", endpointClass.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        this.concurrencyLimited = Counter.builder("cars.api.admission.rejected")
+                .description("Запросы к API, отклонённые контролем допуска")
+                .tag("reason", "concurrency")
+                .tag("class", EndpointClass.EXPENSIVE.name().toLowerCase())
+                .register(meterRegistry);
+        meterRegistry.gauge("cars.api.admission.expensive.in_flight", expensiveSlots,
+                slots -> maxConcurrentExpensive - slots.availablePermits());
+        meterRegistry.gauge("cars.api.admission.clients", buckets, Map::size);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        EndpointClass endpointClass = classify(request);
+
+        long waitNanos = bucket(clientKey(request), endpointClass).tryAcquire();
+        if (waitNanos > 0) {
+            rateLimited.get(endpointClass).increment();
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, waitNanos, "Слишком много запросов, повторите позже.");
+            return;
+        }
+
+        if (endpointClass != EndpointClass.EXPENSIVE) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        boolean acquired;
+        try {
+            acquired = expensiveSlots.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            concurrencyLimited.increment();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, TimeUnit.SECONDS.toNanos(1), "Сервер перегружен, повторите позже.");
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            expensiveSlots.release();
+        }
+    }
+
+    /**
+     * Удаляет вёдра клиентов, которые давно не обращались к API.
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket -> now - bucket.getLastUsedNanos() > IDLE_BUCKET_NANOS);
+    }
+
+    /**
+     * Определяет класс эндпоинта: полные выборки таблицы считаются дорогими.
+     */
+    static EndpointClass classify(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String method = request.getMethod();
+        if (path.startsWith("/cars/api/search") || path.startsWith("/cars/api/reg-count")) {
+            return EndpointClass.EXPENSIVE;
+        }
+        if ("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method)) {
+            return EndpointClass.DEFAULT;
+        }
+        return EndpointClass.WRITE;
+    }
+
+    /**
+     * Клиент определяется по уже проверенному токену, иначе по адресу отправителя:
+     * произвольный заголовок не должен давать новое ведро.
+     */
+    private String clientKey(HttpServletRequest request) {
+        String token = ApiTokenAuthenticationFilter.extractToken(request);
+        if (token != null) {
+            Optional<String> clientId = tokenVerifier.findVerified(token);
+            if (clientId.isPresent()) {
+                return "client:" + clientId.get();
+            }
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private TokenBucket bucket(String client, EndpointClass endpointClass) {
+        String key = endpointClass.ordinal() + "|" + client;
+        TokenBucket bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxClients) {
+            evictIdleBuckets();
+            if (buckets.size() >= maxClients) {
+                return overflowBuckets.get(endpointClass); // Защита от неограниченного роста при переборе адресов
+            }
+        }
+        Limit limit = limits.get(endpointClass);
+        return buckets.computeIfAbsent(key, k -> new TokenBucket(limit.capacity(), limit.refillPerSecond()));
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, long retryAfterNanos, String message)
+            throws IOException {
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(retryAfterNanos + 999_999_999L));
+        response.setStatus(status.value());
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write("{\"error\":\"" + message + "\"}");
+    }
+}
@@ -0,0 +1,73 @@
+package ru.evtu.kursovoy_new.api;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Фильтр аутентификации машинных клиентов по токену.
+ *
+ * Токен передаётся в заголовке {@code Authorization: Bearer <token>} или {@code X-API-Key}.
+ * Контекст безопасности живёт только в рамках запроса и никогда не сохраняется в сессии.
+ * Фильтр не является бином, чтобы Spring Boot не зарегистрировал его для всех URL.
+ */
+public class ApiTokenAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final ApiTokenVerifier verifier;
+
+    public ApiTokenAuthenticationFilter(ApiTokenVerifier verifier) {
+        this.verifier = verifier;
+    }
+
+    /**
+     * Проверяет, передал ли клиент токен API.
+     *
+     * @param request HTTP-запрос
+     * @return true, если запрос содержит токен
+     */
+    public static boolean hasToken(HttpServletRequest request) {
+        return extractToken(request) != null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String token = extractToken(request);
+        Optional<String> clientId = token != null ? verifier.verify(token) : Optional.empty();
+        if (clientId.isEmpty()) {
+            response.setHeader("WWW-Authenticate", "Bearer");
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(UsernamePasswordAuthenticationToken.authenticated(
+                clientId.get(), null, AuthorityUtils.createAuthorityList("ROLE_API")));
+        SecurityContextHolder.setContext(context);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    static String extractToken(HttpServletRequest request) {
+        String authorization = request.getHeader("Authorization");
+        if (authorization != null && authorization.startsWith(BEARER_PREFIX)) {
+            return authorization.substring(BEARER_PREFIX.length()).trim();
+        }
+        String apiKey = request.getHeader("X-API-Key");
+        return apiKey != null && !apiKey.isBlank() ? apiKey.trim() : null;
+    }
+}
@@ -0,0 +1,117 @@
+package ru.evtu.kursovoy_new.api;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверка токенов машинных клиентов API.
+ *
+ * Токен имеет вид {@code <clientId>.<secret>}. Для каждого клиента в свойстве
+ * cars.api.tokens хранится только хеш секрета в формате Spring Security
+ * (например, {@code {bcrypt}$2a$10$...}), поэтому полная проверка дорогая.
+ * Успешно проверенные токены кэшируются в ограниченном LRU-кэше с ограниченным
+ * временем жизни; ключом служит SHA-256 токена, сам токен в памяти не хранится.
+ */
+@Component
+public class ApiTokenVerifier {
+
+    private final Map<String, String> secretHashes = new HashMap<>(); // clientId -> хеш секрета
+    private final PasswordEncoder passwordEncoder = PasswordEncoderFactories.createDelegatingPasswordEncoder();
+    private final long ttlNanos;
+    private final Map<String, CachedClient> cache;
+
+    /**
+     * @param tokens    список пар clientId:хеш через запятую
+     * @param cacheSize максимальное количество проверенных токенов в кэше
+     * @param ttlSeconds время жизни записи кэша в секундах
+     */
+    public ApiTokenVerifier(@Value("${cars.api.tokens:}") List<String> tokens,
+                            @Value("${cars.api.token-cache.size:1024}") int cacheSize,
+                            @Value("${cars.api.token-cache.ttl-seconds:300}") long ttlSeconds) {
+        for (String token : tokens) {
+            int separator = token.indexOf(':');
+            if (separator > 0) {
+                secretHashes.put(token.substring(0, separator).trim(), token.substring(separator + 1).trim());
+            }
+        }
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedClient> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * Проверяет токен.
+     *
+     * @param token токен клиента
+     * @return идентификатор клиента или пустой Optional, если токен недействителен
+     */
+    public Optional<String> verify(String token) {
+        int separator = token.indexOf('.');
+        if (separator <= 0 || separator == token.length() - 1) {
+            return Optional.empty();
+        }
+        String digest = sha256(token);
+        long now = System.nanoTime();
+        CachedClient cached = cache.get(digest);
+        if (cached != null && cached.expiresAtNanos() - now > 0) {
+            return Optional.of(cached.clientId());
+        }
+
+        String clientId = token.substring(0, separator);
+        String secretHash = secretHashes.get(clientId);
+        if (secretHash == null || !passwordEncoder.matches(token.substring(separator + 1), secretHash)) {
+            cache.remove(digest);
+            return Optional.empty();
+        }
+        cache.put(digest, new CachedClient(clientId, now + ttlNanos));
+        return Optional.of(clientId);
+    }
+
+    /**
+     * Возвращает клиента токена, только если токен уже проверен и находится в кэше.
+     * Хеш секрета не проверяется, поэтому метод дешёвый и пригоден для вызова до аутентификации.
+     *
+     * @param token токен клиента
+     * @return идентификатор клиента или пустой Optional, если токен не проверялся или запись устарела
+     */
+    public Optional<String> findVerified(String token) {
+        CachedClient cached = cache.get(sha256(token));
+        if (cached != null && cached.expiresAtNanos() - System.nanoTime() > 0) {
+            return Optional.of(cached.clientId());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Проверяет, настроен ли хотя бы один клиент API.
+     *
+     * @return true, если токены заданы
+     */
+    public boolean isConfigured() {
+        return !secretHashes.isEmpty();
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+
+    private record CachedClient(String clientId, long expiresAtNanos) {
+    }
+}
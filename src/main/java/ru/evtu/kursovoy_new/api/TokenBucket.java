@@ -0,0 +1,53 @@
+package ru.evtu.kursovoy_new.api;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Простой потокобезопасный «ведёрный» ограничитель частоты (token bucket).
+ *
+ * Ведро вмещает не более {@code capacity} жетонов и пополняется со скоростью
+ * {@code refillPerSecond} жетонов в секунду. Каждый запрос забирает один жетон.
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerNano;
+
+    private double tokens;
+    private long lastRefillNanos;
+    private volatile long lastUsedNanos;
+
+    public TokenBucket(double capacity, double refillPerSecond) {
+        this.capacity = capacity;
+        this.refillPerNano = refillPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+        this.lastUsedNanos = lastRefillNanos;
+    }
+
+    /**
+     * Пытается забрать один жетон.
+     *
+     * @return 0, если жетон получен; иначе время ожидания следующего жетона в наносекундах
+     */
+    public synchronized long tryAcquire() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * refillPerNano);
+        lastRefillNanos = now;
+        lastUsedNanos = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / refillPerNano);
+    }
+
+    /**
+     * Возвращает момент последнего обращения к ведру (по System.nanoTime()).
+     *
+     * @return время последнего обращения в наносекундах
+     */
+    public long getLastUsedNanos() {
+        return lastUsedNanos;
+    }
+}
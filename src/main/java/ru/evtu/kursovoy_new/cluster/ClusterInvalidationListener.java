@@ -0,0 +1,18 @@
+package ru.evtu.kursovoy_new.cluster;
+
+import java.util.List;
+
+/**
+ * Получатель сообщений об изменениях, выполненных на других узлах.
+ *
+ * Вызывается из потока опроса шины один раз на порцию записей, поэтому дорогое
+ * обновление (например, полное перестроение структуры в памяти) выполняется
+ * не чаще одного раза за цикл опроса.
+ */
+public interface ClusterInvalidationListener {
+
+    /**
+     * @param invalidations записи других узлов в порядке их номеров
+     */
+    void onRemoteInvalidations(List<Invalidation> invalidations);
+}
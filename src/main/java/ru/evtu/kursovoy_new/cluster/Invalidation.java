@@ -0,0 +1,14 @@
+package ru.evtu.kursovoy_new.cluster;
+
+/**
+ * Запись шины инвалидации: сообщение о том, что на узле nodeId изменились данные темы topic.
+ *
+ * @param id     порядковый номер записи в cache_invalidations
+ * @param nodeId узел, выполнивший изменение
+ * @param topic  тема: {@link InvalidationBus#TOPIC_CARS}, {@link InvalidationBus#TOPIC_CATALOG}
+ *               или {@link InvalidationBus#TOPIC_SUBSCRIPTIONS}
+ * @param key    идентификатор изменённой сущности (может быть null)
+ * @param type   тип изменения: add, update, delete или null
+ */
+public record Invalidation(long id, String nodeId, String topic, Long key, String type) {
+}
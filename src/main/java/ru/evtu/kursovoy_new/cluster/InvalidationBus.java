@@ -0,0 +1,234 @@
+package ru.evtu.kursovoy_new.cluster;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.evtu.kursovoy_new.second.Car;
+import ru.evtu.kursovoy_new.second.CarChangeListener;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Шина инвалидации кэшей между экземплярами приложения без внешнего брокера.
+ *
+ * Каждое изменение на узле записывается строкой в таблицу cache_invalidations общей базы
+ * данных. Все узлы периодически читают новые строки по возрастанию номера, пропускают
+ * собственные и передают остальные {@link ClusterInvalidationListener}, которые сбрасывают
+ * или обновляют свои структуры в памяти. Задержка распространения ограничена периодом опроса.
+ *
+ * Номера AUTO_INCREMENT могут становиться видимыми не по порядку (транзакция с меньшим номером
+ * фиксируется позже), поэтому пропуски в последовательности запоминаются и перечитываются,
+ * пока не истечёт время ожидания. Старые строки периодически удаляются.
+ */
+@Component
+public class InvalidationBus implements CarChangeListener {
+
+    private static final Logger log = LoggerFactory.getLogger(InvalidationBus.class);
+
+    public static final String TOPIC_CARS = "cars";
+    public static final String TOPIC_CATALOG = "catalog";
+    public static final String TOPIC_SUBSCRIPTIONS = "subscriptions";
+
+    /** Наибольший пропуск номеров, который имеет смысл отслеживать. */
+    private static final int MAX_TRACKED_GAP = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectProvider<ClusterInvalidationListener> listeners;
+    private final boolean enabled;
+    private final String nodeId;
+    private final int batchSize;
+    private final long gapTimeoutNanos;
+    private final long retentionMinutes;
+
+    private final Timer lag;
+    private final Map<Long, Long> gaps = new HashMap<>(); // Номер пропуска -> срок ожидания (nanoTime)
+    private long lastSeenId;
+    private volatile long lastPollNanos = System.nanoTime();
+
+    public InvalidationBus(JdbcTemplate jdbcTemplate,
+                           ObjectProvider<ClusterInvalidationListener> listeners,
+                           @Value("${cars.cluster.enabled:true}") boolean enabled,
+                           @Value("${cars.cluster.node-id:}") String nodeId,
+                           @Value("${cars.cluster.batch-size:500}") int batchSize,
+                           @Value("${cars.cluster.gap-timeout-ms:5000}") long gapTimeoutMs,
+                           @Value("${cars.cluster.retention-minutes:60}") long retentionMinutes,
+                           MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.listeners = listeners;
+        this.enabled = enabled;
+        this.nodeId = nodeId.isBlank() ? defaultNodeId() : nodeId;
+        this.batchSize = batchSize;
+        this.gapTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(gapTimeoutMs);
+        this.retentionMinutes = retentionMinutes;
+        this.lag = Timer.builder("cars.cluster.invalidation.lag")
+                .description("Время от изменения на другом узле до его применения на этом узле")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        meterRegistry.gauge("cars.cluster.invalidation.poll.age.seconds", this,
+                bus -> (System.nanoTime() - bus.lastPollNanos) / 1e9);
+    }
+
+    /**
+     * Создаёт таблицу шины и начинает чтение с её текущего конца: более ранние изменения
+     * уже учтены структурами, которые узел строит при запуске.
+     */
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS cache_invalidations ("
+                + "id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "node_id VARCHAR(64) NOT NULL, "
+                + "topic VARCHAR(32) NOT NULL, "
+                + "entity_key BIGINT NULL, "
+                + "change_type VARCHAR(16) NULL, "
+                + "created_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3), "
+                + "INDEX idx_cache_invalidations_created (created_at))");
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM cache_invalidations", Long.class);
+        lastSeenId = maxId != null ? maxId : 0;
+        log.info("Шина инвалидации запущена, узел {}", nodeId);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Сообщает другим узлам об изменении данных темы.
+     *
+     * @param topic тема изменения
+     * @param key   идентификатор сущности (может быть null)
+     * @param type  тип изменения (может быть null)
+     */
+    public void publish(String topic, Long key, String type) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            jdbcTemplate.update("INSERT INTO cache_invalidations (node_id, topic, entity_key, change_type) VALUES (?, ?, ?, ?)",
+                    nodeId, topic, key, type);
+        } catch (RuntimeException e) {
+            // Другие узлы увидят изменение с опозданием (по истечении своих кэшей), но запись не должна падать
+            log.warn("Не удалось опубликовать инвалидацию {} {}", topic, key, e);
+        }
+    }
+
+    @Override
+    public void onCarAdded(Car car) {
+        publish(TOPIC_CARS, car.getId(), "add");
+    }
+
+    @Override
+    public void onCarUpdated(Car before, Car after) {
+        publish(TOPIC_CARS, after.getId(), "update");
+    }
+
+    @Override
+    public void onCarDeleted(Car car) {
+        publish(TOPIC_CARS, car.getId(), "delete");
+    }
+
+    /**
+     * Читает новые записи других узлов и передаёт их получателям.
+     */
+    @Scheduled(fixedDelayString = "${cars.cluster.poll-ms:1000}")
+    public synchronized void poll() {
+        if (!enabled) {
+            return;
+        }
+        List<Invalidation> remote = new ArrayList<>();
+        List<Long> lagMicros = new ArrayList<>();
+        long now = System.nanoTime();
+        gaps.values().removeIf(deadline -> deadline - now < 0);
+
+        StringBuilder sql = new StringBuilder("SELECT id, node_id, topic, entity_key, change_type, "
+                + "TIMESTAMPDIFF(MICROSECOND, created_at, CURRENT_TIMESTAMP(3)) AS age_micros "
+                + "FROM cache_invalidations WHERE id > ?");
+        List<Object> args = new ArrayList<>();
+        args.add(lastSeenId);
+        if (!gaps.isEmpty()) {
+            sql.append(" OR id IN (").append(String.join(",", Collections.nCopies(gaps.size(), "?"))).append(')');
+            args.addAll(gaps.keySet());
+        }
+        sql.append(" ORDER BY id LIMIT ?");
+        args.add(batchSize);
+
+        try {
+            jdbcTemplate.query(sql.toString(), rs -> {
+                long id = rs.getLong("id");
+                if (gaps.remove(id) == null) {
+                    if (id <= lastSeenId) {
+                        return; // Пропуск уже истёк и был обработан ранее
+                    }
+                    if (id - lastSeenId - 1 <= MAX_TRACKED_GAP) {
+                        for (long missing = lastSeenId + 1; missing < id; missing++) {
+                            gaps.put(missing, now + gapTimeoutNanos);
+                        }
+                    }
+                    lastSeenId = id;
+                }
+                String rowNode = rs.getString("node_id");
+                if (nodeId.equals(rowNode)) {
+                    return;
+                }
+                remote.add(new Invalidation(id, rowNode, rs.getString("topic"),
+                        rs.getObject("entity_key", Long.class), rs.getString("change_type")));
+                lagMicros.add(rs.getLong("age_micros"));
+            }, args.toArray());
+        } catch (RuntimeException e) {
+            log.warn("Не удалось прочитать шину инвалидации", e);
+            return;
+        }
+        lastPollNanos = System.nanoTime();
+
+        if (!remote.isEmpty()) {
+            List<Invalidation> batch = Collections.unmodifiableList(remote);
+            for (ClusterInvalidationListener listener : listeners.orderedStream().toList()) {
+                try {
+                    listener.onRemoteInvalidations(batch);
+                } catch (RuntimeException e) {
+                    log.warn("Получатель {} завершился с ошибкой", listener.getClass().getSimpleName(), e);
+                }
+            }
+            lagMicros.forEach(micros -> lag.record(Math.max(0, micros), TimeUnit.MICROSECONDS));
+        }
+    }
+
+    /**
+     * Удаляет записи старше срока хранения: к этому времени их прочитали все работающие узлы.
+     */
+    @Scheduled(fixedDelayString = "${cars.cluster.compaction-ms:600000}")
+    public void compact() {
+        if (!enabled) {
+            return;
+        }
+        int deleted;
+        do {
+            // Время сравнивается по часам базы данных, общим для всех узлов
+            deleted = jdbcTemplate.update("DELETE FROM cache_invalidations "
+                    + "WHERE created_at < CURRENT_TIMESTAMP(3) - INTERVAL ? MINUTE LIMIT 10000", retentionMinutes);
+        } while (deleted == 10000);
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "node";
+        }
+        String suffix = UUID.randomUUID().toString().substring(0, 8); // Несколько экземпляров на одном хосте
+        return (host.length() > 50 ? host.substring(0, 50) : host) + "-" + suffix;
+    }
+}
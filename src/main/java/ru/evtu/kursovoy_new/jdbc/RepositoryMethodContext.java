@@ -0,0 +1,45 @@
+package ru.evtu.kursovoy_new.jdbc;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * Хранит имя выполняемого метода репозитория в текущем потоке.
+ *
+ * Перехватчик добавляется в прокси всех репозиториев Spring Data, поэтому журнал
+ * медленных запросов может указать, какой метод (например, CarRepository.findAll)
+ * породил SQL-запрос.
+ */
+public final class RepositoryMethodContext implements MethodInterceptor {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private final String repositoryName;
+
+    public RepositoryMethodContext(Class<?> repositoryInterface) {
+        this.repositoryName = repositoryInterface.getSimpleName();
+    }
+
+    /**
+     * Возвращает имя метода репозитория, выполняемого в текущем потоке.
+     *
+     * @return имя вида Repository.method или null вне репозитория
+     */
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        String previous = CURRENT.get();
+        if (previous != null) {
+            return invocation.proceed(); // Вложенный вызов: сохраняем внешний метод
+        }
+        CURRENT.set(repositoryName + "." + invocation.getMethod().getName());
+        try {
+            return invocation.proceed();
+        } finally {
+            CURRENT.remove();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package ru.evtu.kursovoy_new.jdbc;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.Locale;
+
+/**
+ * Вспомогательные методы для идемпотентных изменений схемы при старте приложения.
+ *
+ * Схема не управляется Hibernate (ddl-auto=none), а MySQL не поддерживает
+ * ADD COLUMN IF NOT EXISTS, поэтому наличие столбцов и индексов проверяется
+ * через метаданные JDBC перед выполнением DDL.
+ */
+public final class SchemaSupport {
+
+    private SchemaSupport() {
+    }
+
+    /**
+     * Проверяет существование таблицы.
+     *
+     * @param jdbcTemplate шаблон JDBC целевой базы
+     * @param table        имя таблицы
+     * @return true, если таблица существует
+     */
+    public static boolean tableExists(JdbcTemplate jdbcTemplate, String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (String name : new String[]{table, table.toUpperCase(Locale.ROOT)}) {
+                try (ResultSet rs = metaData.getTables(connection.getCatalog(), null, name, new String[]{"TABLE"})) {
+                    if (rs.next()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }));
+    }
+
+    /**
+     * Проверяет существование столбца таблицы.
+     *
+     * @param jdbcTemplate шаблон JDBC целевой базы
+     * @param table        имя таблицы
+     * @param column       имя столбца
+     * @return true, если столбец существует
+     */
+    public static boolean columnExists(JdbcTemplate jdbcTemplate, String table, String column) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (String name : new String[]{table, table.toUpperCase(Locale.ROOT)}) {
+                try (ResultSet rs = metaData.getColumns(connection.getCatalog(), null, name, null)) {
+                    while (rs.next()) {
+                        if (column.equalsIgnoreCase(rs.getString("COLUMN_NAME"))) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }));
+    }
+
+    /**
+     * Проверяет существование индекса таблицы.
+     *
+     * @param jdbcTemplate шаблон JDBC целевой базы
+     * @param table        имя таблицы
+     * @param index        имя индекса
+     * @return true, если индекс существует
+     */
+    public static boolean indexExists(JdbcTemplate jdbcTemplate, String table, String index) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (String name : new String[]{table, table.toUpperCase(Locale.ROOT)}) {
+                try (ResultSet rs = metaData.getIndexInfo(connection.getCatalog(), null, name, false, true)) {
+                    while (rs.next()) {
+                        if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }));
+    }
+
+    /**
+     * Добавляет столбец, если его ещё нет.
+     *
+     * @param jdbcTemplate шаблон JDBC целевой базы
+     * @param table        имя таблицы
+     * @param column       имя столбца
+     * @param definition   SQL-определение столбца (тип и ограничения)
+     * @return true, если столбец был добавлен
+     */
+    public static boolean addColumnIfMissing(JdbcTemplate jdbcTemplate, String table, String column, String definition) {
+        if (columnExists(jdbcTemplate, table, column)) {
+            return false;
+        }
+        jdbcTemplate.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+        return true;
+    }
+
+    /**
+     * Создаёт индекс, если его ещё нет.
+     *
+     * @param jdbcTemplate шаблон JDBC целевой базы
+     * @param table        имя таблицы
+     * @param index        имя индекса
+     * @param columns      столбцы индекса через запятую
+     */
+    public static void createIndexIfMissing(JdbcTemplate jdbcTemplate, String table, String index, String columns) {
+        if (!indexExists(jdbcTemplate, table, index)) {
+            jdbcTemplate.execute("CREATE INDEX " + index + " ON " + table + " (" + columns + ")");
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package ru.evtu.kursovoy_new.jdbc;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Журнал медленных SQL-запросов.
+ *
+ * Записи хранятся в кольцевом буфере фиксированного размера без блокировок:
+ * позиция выделяется атомарным счётчиком, старые записи перезаписываются новыми.
+ * В журнал попадают запросы дольше порога, а также (по желанию) случайная выборка
+ * обычных запросов, что позволяет отключить логирование SQL Hibernate в продакшене.
+ */
+@Component
+public class SlowQueryLog {
+
+    private static final int MAX_PARAMETER_LENGTH = 100;
+
+    private final long thresholdNanos;
+    private final double sampleRate;
+    private final AtomicReferenceArray<SlowQuery> buffer;
+    private final AtomicLong cursor = new AtomicLong();
+    private final AtomicLong totalStatements = new AtomicLong();
+
+    public SlowQueryLog(@Value("${cars.sql.slow-threshold-ms:200}") long thresholdMs,
+                        @Value("${cars.sql.sample-rate:0.0}") double sampleRate,
+                        @Value("${cars.sql.slow-log-size:256}") int size) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMs);
+        this.sampleRate = sampleRate;
+        this.buffer = new AtomicReferenceArray<>(size);
+    }
+
+    /**
+     * Учитывает выполненный запрос и при необходимости сохраняет его в журнал.
+     *
+     * @param sql              текст запроса
+     * @param parameters       значения параметров по порядку (может быть null)
+     * @param elapsedNanos     время выполнения в наносекундах
+     * @param repositoryMethod вызывающий метод репозитория (может быть null)
+     */
+    public void record(String sql, List<Object> parameters, long elapsedNanos, String repositoryMethod) {
+        totalStatements.incrementAndGet();
+        boolean slow = elapsedNanos >= thresholdNanos;
+        if (!slow && (sampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+            return;
+        }
+        long sequence = cursor.getAndIncrement();
+        buffer.set((int) (sequence % buffer.length()), new SlowQuery(sequence, Instant.now(), sql,
+                format(parameters), TimeUnit.NANOSECONDS.toMicros(elapsedNanos), repositoryMethod, !slow));
+    }
+
+    /**
+     * Возвращает содержимое журнала, начиная с самых новых записей.
+     *
+     * @return список записей
+     */
+    public List<SlowQuery> snapshot() {
+        List<SlowQuery> entries = new ArrayList<>(buffer.length());
+        for (int i = 0; i < buffer.length(); i++) {
+            SlowQuery entry = buffer.get(i);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        entries.sort(Comparator.comparingLong(SlowQuery::sequence).reversed());
+        return entries;
+    }
+
+    /**
+     * Очищает журнал.
+     */
+    public void clear() {
+        for (int i = 0; i < buffer.length(); i++) {
+            buffer.set(i, null);
+        }
+    }
+
+    /**
+     * Возвращает общее количество выполненных запросов.
+     *
+     * @return количество запросов с момента запуска
+     */
+    public long getTotalStatements() {
+        return totalStatements.get();
+    }
+
+    /**
+     * Возвращает количество записей, когда-либо помещённых в журнал.
+     *
+     * @return количество записей
+     */
+    public long getRecorded() {
+        return cursor.get();
+    }
+
+    public long getThresholdMs() {
+        return TimeUnit.NANOSECONDS.toMillis(thresholdNanos);
+    }
+
+    private static List<String> format(List<Object> parameters) {
+        if (parameters == null) {
+            return List.of();
+        }
+        List<String> formatted = new ArrayList<>(parameters.size());
+        for (Object parameter : parameters) {
+            String value = String.valueOf(parameter);
+            formatted.add(value.length() > MAX_PARAMETER_LENGTH ? value.substring(0, MAX_PARAMETER_LENGTH) + "…" : value);
+        }
+        return formatted;
+    }
+
+    /**
+     * Запись журнала.
+     *
+     * @param sequence         порядковый номер записи
+     * @param timestamp        момент завершения запроса
+     * @param sql              текст запроса
+     * @param parameters       значения параметров
+     * @param elapsedMicros    время выполнения в микросекундах
+     * @param repositoryMethod вызывающий метод репозитория
+     * @param sampled          true, если запрос попал в журнал по выборке, а не по порогу
+     */
+    public record SlowQuery(long sequence, Instant timestamp, String sql, List<String> parameters,
+                            long elapsedMicros, String repositoryMethod, boolean sampled) {
+    }
+}
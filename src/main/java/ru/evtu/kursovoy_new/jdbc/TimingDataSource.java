@@ -0,0 +1,124 @@
+package ru.evtu.kursovoy_new.jdbc;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Источник данных, измеряющий время выполнения каждого SQL-запроса.
+ *
+ * Соединения и операторы оборачиваются динамическими прокси: для PreparedStatement
+ * запоминаются значения параметров, а вызовы execute* замеряются и передаются
+ * в {@link SlowQueryLog} вместе с именем вызывающего метода репозитория.
+ */
+public class TimingDataSource extends DelegatingDataSource {
+
+    /** Сколько наборов параметров пакета запоминается для журнала. */
+    private static final int MAX_BATCH_SNAPSHOTS = 20;
+
+    private final Supplier<SlowQueryLog> slowQueryLog;
+
+    public TimingDataSource(DataSource target, Supplier<SlowQueryLog> slowQueryLog) {
+        super(target);
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrapConnection(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrapConnection(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private Connection wrapConnection(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof Statement statement) {
+                        String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+                        return wrapStatement(statement, sql);
+                    }
+                    return result;
+                });
+    }
+
+    private Statement wrapStatement(Statement statement, String preparedSql) {
+        Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type},
+                new StatementHandler(statement, preparedSql));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /**
+     * Обработчик вызовов оператора: собирает параметры и замеряет выполнение.
+     */
+    private final class StatementHandler implements InvocationHandler {
+
+        private final Statement target;
+        private final String preparedSql;
+        private final List<Object> parameters = new ArrayList<>();
+        private final List<Object> batch = new ArrayList<>(); // Наборы параметров, добавленные addBatch
+
+        private StatementHandler(Statement target, String preparedSql) {
+            this.target = target;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                while (parameters.size() < index) {
+                    parameters.add(null);
+                }
+                parameters.set(index - 1, name.equals("setNull") ? null : args[1]); // Второй аргумент setNull — тип SQL
+            } else if (name.equals("clearParameters")) {
+                parameters.clear();
+            } else if (name.equals("addBatch") && (args == null || args.length == 0)) {
+                if (batch.size() < MAX_BATCH_SNAPSHOTS) {
+                    batch.add(new ArrayList<>(parameters));
+                }
+                parameters.clear();
+            } else if (name.equals("clearBatch")) {
+                batch.clear();
+            } else if (name.startsWith("execute")) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : preparedSql;
+                long start = System.nanoTime();
+                try {
+                    return TimingDataSource.invoke(target, method, args);
+                } finally {
+                    long elapsed = System.nanoTime() - start;
+                    SlowQueryLog log = slowQueryLog.get();
+                    List<Object> bound = name.equals("executeBatch") ? batch : parameters;
+                    if (log != null) {
+                        log.record(sql, bound.isEmpty() ? null : new ArrayList<>(bound),
+                                elapsed, RepositoryMethodContext.current());
+                    }
+                    if (name.equals("executeBatch")) {
+                        batch.clear();
+                    }
+                }
+            }
+            return TimingDataSource.invoke(target, method, args);
+        }
+    }
+}
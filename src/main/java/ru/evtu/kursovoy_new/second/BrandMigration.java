@@ -0,0 +1,104 @@
+package ru.evtu.kursovoy_new.second;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.evtu.kursovoy_new.jdbc.SchemaSupport;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Миграция кодирования марок.
+ *
+ * Добавляет в cars (и в архив) столбцы brand_id и model_id и при запуске заполняет
+ * brand_id для существующих строк по словарю {@link CarCatalog}. Строки с маркой,
+ * отсутствующей в каталоге, остаются с brand_id = NULL и перечисляются в журнале.
+ * При включённом шардировании brand_id заполняется на каждом шарде.
+ */
+@Component
+@Order(0)
+public class BrandMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(BrandMigration.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CarArchiveRepository carArchiveRepository;
+    private final CarCatalog carCatalog;
+    private final ObjectProvider<ShardedCarStore> shardedCarStore;
+
+    public BrandMigration(JdbcTemplate jdbcTemplate, CarArchiveRepository carArchiveRepository, CarCatalog carCatalog,
+                          ObjectProvider<ShardedCarStore> shardedCarStore) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.carArchiveRepository = carArchiveRepository; // Архив должен быть создан до изменения его схемы
+        this.carCatalog = carCatalog;
+        this.shardedCarStore = shardedCarStore;
+    }
+
+    /**
+     * Добавляет столбцы brand_id и model_id с индексом по brand_id.
+     */
+    @PostConstruct
+    public void migrateSchema() {
+        migrateTable("cars");
+        if (carArchiveRepository.isEnabled()) {
+            migrateTable("cars_archive");
+        }
+    }
+
+    /**
+     * Заполняет brand_id по строковому значению марки.
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        List<String> unknown = new ArrayList<>();
+        int mapped = 0;
+        ShardedCarStore sharded = shardedCarStore.getIfAvailable();
+        if (sharded != null) {
+            for (JdbcTemplate shard : sharded.getShards()) {
+                mapped += backfill(shard, "cars", unknown);
+            }
+        } else {
+            mapped += backfill(jdbcTemplate, "cars", unknown);
+            if (carArchiveRepository.isEnabled()) {
+                mapped += backfill(jdbcTemplate, "cars_archive", unknown);
+            }
+        }
+        if (mapped > 0) {
+            log.info("Марки закодированы: {} автомобилей связано с каталогом", mapped);
+        }
+        if (!unknown.isEmpty()) {
+            log.warn("Марки отсутствуют в каталоге car_brands: {}", unknown);
+        }
+    }
+
+    private void migrateTable(String table) {
+        SchemaSupport.addColumnIfMissing(jdbcTemplate, table, "brand_id", "BIGINT NULL");
+        SchemaSupport.addColumnIfMissing(jdbcTemplate, table, "model_id", "BIGINT NULL");
+        SchemaSupport.createIndexIfMissing(jdbcTemplate, table, "idx_" + table + "_brand_id", "brand_id");
+    }
+
+    private int backfill(JdbcTemplate target, String table, List<String> unknown) {
+        List<String> brands = target.queryForList(
+                "SELECT DISTINCT brand FROM " + table + " WHERE brand_id IS NULL AND brand IS NOT NULL", String.class);
+        int mapped = 0;
+        for (String brand : brands) {
+            Long brandId = carCatalog.resolveBrandId(brand);
+            if (brandId == null) {
+                if (!unknown.contains(brand)) {
+                    unknown.add(brand); // Одна марка может встретиться на нескольких шардах
+                }
+                continue;
+            }
+            mapped += target.update("UPDATE " + table + " SET brand_id = ? WHERE brand_id IS NULL AND brand = ?",
+                    brandId, brand);
+        }
+        return mapped;
+    }
+}
@@ -1,5 +1,6 @@
 package ru.evtu.kursovoy_new.second;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.Getter;
@@ -53,4 +54,48 @@ public class Car {
      */
     private String ownerName;
 
+    /**
+     * Идентификатор владельца в справочнике owners.
+     * Заполняется сервисом при записи по имени владельца.
+     */
+    private Long ownerId;
+
+    /**
+     * Идентификатор марки в каталоге car_brands.
+     * Null, если марка отсутствует в каталоге.
+     */
+    private Long brandId;
+
+    /**
+     * Идентификатор модели в каталоге car_models.
+     * Может быть нулевым, если модель не указана.
+     */
+    private Long modelId;
+
+    /**
+     * Код модели, переданный формой добавления. В базе не хранится:
+     * по нему сервис определяет modelId.
+     */
+    @Transient
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+    private String modelCode;
+
+    /**
+     * Создаёт отсоединённую копию автомобиля.
+     * Используется, чтобы передать слушателям состояние до изменения.
+     *
+     * @return копия текущего объекта
+     */
+    public Car copy() {
+        Car copy = new Car();
+        copy.setId(id);
+        copy.setBrand(brand);
+        copy.setReleaseYear(releaseYear);
+        copy.setRegDate(regDate);
+        copy.setOwnerName(ownerName);
+        copy.setOwnerId(ownerId);
+        copy.setBrandId(brandId);
+        copy.setModelId(modelId);
+        return copy;
+    }
 }
@@ -0,0 +1,369 @@
+package ru.evtu.kursovoy_new.second;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import ru.evtu.kursovoy_new.cluster.ClusterInvalidationListener;
+import ru.evtu.kursovoy_new.cluster.Invalidation;
+import ru.evtu.kursovoy_new.cluster.InvalidationBus;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Агрегатный куб «марка × год выпуска × месяц регистрации» в памяти.
+ *
+ * Значения измерений кодируются словарями в плотные целые коды, а счётчики хранятся
+ * в разреженной карте, ключ которой — упакованные коды (марка, год, месяц): в ней есть только
+ * непустые ячейки, поэтому объём не растёт от произведения размеров измерений, а новая марка
+ * (в том числе с опечаткой) добавляет лишь свои ячейки. Запрос проходит по непустым ячейкам
+ * и отбирает подходящие по маскам кодов. Куб строится
+ * при старте приложения и далее обновляется инкрементально через {@link CarChangeListener},
+ * поэтому запросы среза, кубика и свёртки не обращаются к базе данных. Для каждого автомобиля
+ * запоминаются коды его ячейки, чтобы при изменении вычесть его из прежней ячейки без знания
+ * прежнего состояния (изменения с других узлов его не содержат).
+ */
+@Component
+@Order(1) // После миграций данных (0) и до прогрева, который выполняется последним
+public class CarAnalyticsCube implements CarChangeListener, ClusterInvalidationListener, ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(CarAnalyticsCube.class);
+
+    /**
+     * Измерения куба.
+     */
+    public enum Dimension {
+        BRAND, YEAR, MONTH
+    }
+
+    /** Эпоха-месяц для автомобилей без даты регистрации. */
+    private static final int UNKNOWN_MONTH = Integer.MIN_VALUE;
+
+    private static final long CODE_MASK = (1L << 21) - 1;
+
+    private final CarStore carStore;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Словари: значение измерения -> плотный код, и обратно
+    private final Map<String, Integer> brandCodes = new HashMap<>();
+    private final List<String> brandValues = new ArrayList<>();
+    private final Map<Integer, Integer> yearCodes = new HashMap<>();
+    private final List<Integer> yearValues = new ArrayList<>();
+    private final Map<Integer, Integer> monthCodes = new HashMap<>();
+    private final List<Integer> monthValues = new ArrayList<>();
+
+    // Упакованные коды ячейки (см. pack) -> количество автомобилей; пустые ячейки удаляются
+    private final Map<Long, Integer> cells = new HashMap<>();
+
+    // Идентификатор автомобиля -> упакованные коды его ячейки (см. pack)
+    private final Map<Long, Long> cellByCar = new HashMap<>();
+
+    public CarAnalyticsCube(CarStore carStore) {
+        this.carStore = carStore;
+    }
+
+    /**
+     * Строит куб по текущему содержимому хранилища автомобилей.
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        rebuild(carStore.findAll());
+    }
+
+    /**
+     * Полностью перестраивает куб по переданному набору автомобилей.
+     *
+     * @param cars все автомобили
+     */
+    public void rebuild(Collection<Car> cars) {
+        lock.writeLock().lock();
+        try {
+            brandCodes.clear();
+            brandValues.clear();
+            yearCodes.clear();
+            yearValues.clear();
+            monthCodes.clear();
+            monthValues.clear();
+            cells.clear();
+            cellByCar.clear();
+            for (Car car : cars) {
+                put(car);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Аналитический куб построен: {} автомобилей, {} марок, {} лет, {} месяцев",
+                cars.size(), brandValues.size(), yearValues.size(), monthValues.size());
+    }
+
+    @Override
+    public void onCarAdded(Car car) {
+        lock.writeLock().lock();
+        try {
+            put(car);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onCarUpdated(Car before, Car after) {
+        lock.writeLock().lock();
+        try {
+            put(after);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onCarDeleted(Car car) {
+        lock.writeLock().lock();
+        try {
+            remove(car.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Применяет изменения других узлов: изменённые автомобили загружаются одним запросом,
+     * каждый вычитается из запомненной ячейки и добавляется в новую; не найденные
+     * автомобили считаются удалёнными.
+     */
+    @Override
+    public void onRemoteInvalidations(List<Invalidation> invalidations) {
+        Set<Long> carIds = new LinkedHashSet<>();
+        for (Invalidation invalidation : invalidations) {
+            if (InvalidationBus.TOPIC_CARS.equals(invalidation.topic()) && invalidation.key() != null) {
+                carIds.add(invalidation.key());
+            }
+        }
+        if (carIds.isEmpty()) {
+            return;
+        }
+        Map<Long, Car> cars = new HashMap<>();
+        for (Car car : carStore.findByIdIn(carIds)) {
+            cars.put(car.getId(), car);
+        }
+        lock.writeLock().lock();
+        try {
+            for (Long carId : carIds) {
+                Car car = cars.get(carId);
+                if (car != null) {
+                    put(car);
+                } else {
+                    remove(carId);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Выполняет запрос к кубу.
+     *
+     * Фильтры задают срез (одно значение) или кубик (диапазон) по каждому измерению,
+     * а список измерений группировки — уровень свёртки. Пустой список группировки
+     * возвращает только общий итог.
+     *
+     * @param brands    марки (null или пусто — все марки)
+     * @param yearFrom  минимальный год выпуска включительно (может быть null)
+     * @param yearTo    максимальный год выпуска включительно (может быть null)
+     * @param monthFrom первый месяц регистрации включительно (может быть null)
+     * @param monthTo   последний месяц регистрации включительно (может быть null)
+     * @param groupBy   измерения группировки в порядке следования в ключе
+     * @return итог и значения по группам
+     */
+    public CubeResult query(Collection<String> brands, Integer yearFrom, Integer yearTo,
+                            YearMonth monthFrom, YearMonth monthTo, List<Dimension> groupBy) {
+        lock.readLock().lock();
+        try {
+            boolean[] b = mask(selectBrands(brands), brandValues.size());
+            boolean[] y = mask(selectRange(yearValues, yearFrom, yearTo), yearValues.size());
+            boolean[] m = mask(selectRange(monthValues,
+                    monthFrom != null ? toEpochMonth(monthFrom) : null,
+                    monthTo != null ? toEpochMonth(monthTo) : null), monthValues.size());
+
+            boolean byBrand = groupBy.contains(Dimension.BRAND);
+            boolean byYear = groupBy.contains(Dimension.YEAR);
+            boolean byMonth = groupBy.contains(Dimension.MONTH);
+
+            long total = 0;
+            Map<List<Integer>, Long> groups = new HashMap<>();
+            for (Map.Entry<Long, Integer> cell : cells.entrySet()) {
+                long packed = cell.getKey();
+                int bc = brandCode(packed);
+                int yc = yearCode(packed);
+                int mc = monthCode(packed);
+                if (!b[bc] || !y[yc] || !m[mc]) {
+                    continue;
+                }
+                int count = cell.getValue();
+                total += count;
+                if (!groupBy.isEmpty()) {
+                    List<Integer> key = List.of(byBrand ? bc : -1, byYear ? yc : -1, byMonth ? mc : -1);
+                    groups.merge(key, (long) count, Long::sum);
+                }
+            }
+
+            Map<String, Long> named = new TreeMap<>();
+            for (Map.Entry<List<Integer>, Long> entry : groups.entrySet()) {
+                named.put(groupName(entry.getKey(), groupBy), entry.getValue());
+            }
+            return new CubeResult(total, named);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Переносит автомобиль из прежней ячейки в ячейку по его текущему состоянию.
+     * Вызывается под блокировкой записи.
+     */
+    private void put(Car car) {
+        if (car == null || car.getId() == null) {
+            return;
+        }
+        remove(car.getId());
+        if (car.getBrand() == null || car.getReleaseYear() == null) {
+            return;
+        }
+        LocalDate regDate = car.getRegDate();
+        int bc = code(brandCodes, brandValues, car.getBrand().trim().toUpperCase(Locale.ROOT));
+        int yc = code(yearCodes, yearValues, car.getReleaseYear());
+        int mc = code(monthCodes, monthValues,
+                regDate != null ? toEpochMonth(YearMonth.from(regDate)) : UNKNOWN_MONTH);
+        long packed = pack(bc, yc, mc);
+        cells.merge(packed, 1, Integer::sum);
+        cellByCar.put(car.getId(), packed);
+    }
+
+    /**
+     * Вычитает автомобиль из запомненной ячейки. Вызывается под блокировкой записи.
+     */
+    private void remove(Long carId) {
+        Long packed = carId != null ? cellByCar.remove(carId) : null;
+        if (packed == null) {
+            return;
+        }
+        cells.computeIfPresent(packed, (cell, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * Упаковывает коды ячейки в одно число: по 21 бит на измерение.
+     */
+    private static long pack(int bc, int yc, int mc) {
+        if (bc > CODE_MASK || yc > CODE_MASK || mc > CODE_MASK) {
+            throw new IllegalStateException("Превышено число значений измерения аналитического куба");
+        }
+        return ((long) bc << 42) | ((long) yc << 21) | mc;
+    }
+
+    private static int brandCode(long packed) {
+        return (int) (packed >>> 42);
+    }
+
+    private static int yearCode(long packed) {
+        return (int) ((packed >>> 21) & CODE_MASK);
+    }
+
+    private static int monthCode(long packed) {
+        return (int) (packed & CODE_MASK);
+    }
+
+    private static boolean[] mask(int[] codes, int size) {
+        boolean[] mask = new boolean[size];
+        for (int code : codes) {
+            mask[code] = true;
+        }
+        return mask;
+    }
+
+    private static <T> int code(Map<T, Integer> codes, List<T> values, T value) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+        return code;
+    }
+
+    private int[] selectBrands(Collection<String> brands) {
+        if (brands == null || brands.isEmpty()) {
+            return allCodes(brandValues.size());
+        }
+        return brands.stream()
+                .map(brand -> brandCodes.get(brand.trim().toUpperCase(Locale.ROOT)))
+                .filter(Objects::nonNull)
+                .distinct()
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private static int[] selectRange(List<Integer> values, Integer from, Integer to) {
+        if (from == null && to == null) {
+            return allCodes(values.size());
+        }
+        int[] selected = new int[values.size()];
+        int n = 0;
+        for (int code = 0; code < values.size(); code++) {
+            int value = values.get(code);
+            if (value == UNKNOWN_MONTH) {
+                continue; // Автомобили без даты регистрации не попадают в диапазон месяцев
+            }
+            if ((from == null || value >= from) && (to == null || value <= to)) {
+                selected[n++] = code;
+            }
+        }
+        return Arrays.copyOf(selected, n);
+    }
+
+    private static int[] allCodes(int size) {
+        int[] codes = new int[size];
+        for (int i = 0; i < size; i++) {
+            codes[i] = i;
+        }
+        return codes;
+    }
+
+    private String groupName(List<Integer> key, List<Dimension> groupBy) {
+        StringJoiner name = new StringJoiner("|");
+        for (Dimension dimension : groupBy) {
+            switch (dimension) {
+                case BRAND -> name.add(brandValues.get(key.get(0)));
+                case YEAR -> name.add(String.valueOf(yearValues.get(key.get(1))));
+                case MONTH -> {
+                    int epochMonth = monthValues.get(key.get(2));
+                    name.add(epochMonth == UNKNOWN_MONTH ? "unknown" : fromEpochMonth(epochMonth).toString());
+                }
+            }
+        }
+        return name.toString();
+    }
+
+    private static int toEpochMonth(YearMonth month) {
+        return (month.getYear() - 1970) * 12 + month.getMonthValue() - 1;
+    }
+
+    private static YearMonth fromEpochMonth(int epochMonth) {
+        return YearMonth.of(1970 + Math.floorDiv(epochMonth, 12), Math.floorMod(epochMonth, 12) + 1);
+    }
+
+    /**
+     * Результат запроса к кубу.
+     *
+     * @param total  общее количество автомобилей, попавших под фильтры
+     * @param groups количество по группам; ключ — значения измерений группировки через «|»
+     */
+    public record CubeResult(long total, Map<String, Long> groups) {
+    }
+}
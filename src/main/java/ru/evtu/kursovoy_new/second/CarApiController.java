@@ -3,10 +3,13 @@ package ru.evtu.kursovoy_new.second;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.*;
 
 /**
@@ -24,6 +27,24 @@ public class CarApiController {
     @Autowired
     private CarBrandRepository carBrandRepository; // Репозиторий для работы с марками автомобилей
 
+    @Autowired
+    private CarAnalyticsCube carAnalyticsCube; // Агрегатный куб для аналитических запросов
+
+    @Autowired
+    private CarEventStream carEventStream; // Поток событий об изменениях автомобилей
+
+    @Autowired
+    private CarCatalog carCatalog; // Словарь каталога марок и моделей
+
+    @Autowired
+    private CarHistoryRepository carHistoryRepository; // Журнал изменений автомобилей
+
+    @Autowired
+    private CarChangeLog carChangeLog; // Журнал версий для инкрементальной синхронизации
+
+    /** Наибольшее смещение постраничной выгрузки по номеру страницы. */
+    static final int MAX_PAGE_OFFSET = 10_000;
+
     private final Map<LocalDate, Integer> issuedCars = new HashMap<>(); // Хранит количество выданных автомобилей по дням
 
     /**
@@ -107,6 +128,8 @@ public class CarApiController {
             return ResponseEntity.ok("Машина успешно обновлена.");
         } catch (EntityNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Машина не найдена.");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Ошибка при обновлении машины: " + e.getMessage());
@@ -125,6 +148,76 @@ public class CarApiController {
         return new ArrayList<>(allCars); // Возвращаем отфильтрованные машины в формате JSON
     }
 
+    /**
+     * Возвращает страницу автомобилей, упорядоченных по идентификатору (постраничная выгрузка).
+     * Для полной выгрузки используется курсор afterId: каждая следующая страница запрашивается
+     * с идентификатором последнего автомобиля предыдущей. Номер страницы допустим только
+     * для первых {@value #MAX_PAGE_OFFSET} автомобилей, так как требует чтения всех предыдущих строк.
+     *
+     * @param page    номер страницы, начиная с 0 (если не указан afterId)
+     * @param size    размер страницы (не более 1000)
+     * @param afterId идентификатор последнего автомобиля предыдущей страницы
+     * @return автомобили запрошенной страницы
+     */
+    @GetMapping("/search/page")
+    public ResponseEntity<?> searchCarsPage(@RequestParam(defaultValue = "0") int page,
+                                            @RequestParam(defaultValue = "100") int size,
+                                            @RequestParam(required = false) Long afterId) {
+        if (page < 0 || size <= 0 || size > 1000 || (afterId != null && afterId < 0)) {
+            return ResponseEntity.badRequest()
+                    .body(Collections.singletonMap("error", "Некорректные параметры страницы."));
+        }
+        if (afterId != null) {
+            return ResponseEntity.ok(CarService.findPageAfter(afterId, size));
+        }
+        if ((long) page * size > MAX_PAGE_OFFSET) {
+            return ResponseEntity.badRequest()
+                    .body(Collections.singletonMap("error", "Слишком далёкая страница: используйте параметр afterId."));
+        }
+        return ResponseEntity.ok(CarService.findPage(page, size));
+    }
+
+    /**
+     * Возвращает историю изменений автомобиля постранично, начиная с последних изменений.
+     * Записи журнала сохраняются асинхронно, поэтому только что выполненное изменение
+     * может появиться с небольшой задержкой.
+     *
+     * @param carId идентификатор автомобиля
+     * @param page  номер страницы, начиная с 0
+     * @param size  размер страницы (не более 200)
+     * @return записи истории с изменёнными полями
+     */
+    @GetMapping("/history/{carId}")
+    public ResponseEntity<?> getHistory(@PathVariable Long carId,
+                                        @RequestParam(defaultValue = "0") int page,
+                                        @RequestParam(defaultValue = "50") int size) {
+        if (page < 0 || size <= 0 || size > 200) {
+            return ResponseEntity.badRequest()
+                    .body(Collections.singletonMap("error", "Некорректные параметры страницы."));
+        }
+        return ResponseEntity.ok(carHistoryRepository.findByCarId(carId, page, size));
+    }
+
+    /**
+     * Возвращает изменения списка автомобилей после версии, известной клиенту:
+     * добавленные и изменённые автомобили целиком и идентификаторы удалённых.
+     * Если версия не указана или слишком старая, ответ содержит resync=true и текущую версию:
+     * клиент загружает полный список и продолжает синхронизацию с этой версии.
+     *
+     * @param since последняя версия, полученная клиентом
+     * @param limit максимальное число изменений (не более 1000)
+     * @return изменения, версия для следующего запроса и признак наличия продолжения
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<?> getChanges(@RequestParam(required = false) Long since,
+                                        @RequestParam(defaultValue = "500") int limit) {
+        if (limit <= 0 || limit > 1000) {
+            return ResponseEntity.badRequest()
+                    .body(Collections.singletonMap("error", "Некорректное количество изменений."));
+        }
+        return ResponseEntity.ok(carChangeLog.changesSince(since, limit));
+    }
+
     /**
      * Добавляет новый автомобиль.
      *
@@ -135,7 +228,16 @@ public class CarApiController {
     public ResponseEntity<?> addCar(@ModelAttribute Car car) {
         try {
             CarService.addCar(car);
+            if (car.getBrandId() == null) {
+                // Автомобиль сохранён, но марка не найдена в каталоге
+                Map<String, String> body = new LinkedHashMap<>();
+                body.put("message", "Автомобиль успешно добавлен!");
+                body.put("warning", "Марка \"" + car.getBrand() + "\" отсутствует в каталоге.");
+                return ResponseEntity.ok().body(body);
+            }
             return ResponseEntity.ok().body(Collections.singletonMap("message", "Автомобиль успешно добавлен!")); // Успешный ответ в формате JSON
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Collections.singletonMap("error", "Ошибка при добавлении автомобиля: " + e.getMessage()));
@@ -153,16 +255,74 @@ public class CarApiController {
         return ResponseEntity.ok(issuedBooksCount);
     }
 
+    /**
+     * Подписывает клиента на поток изменений автомобилей (Server-Sent Events).
+     *
+     * @param brand        фильтр по марке (может быть null)
+     * @param releaseYear  фильтр по году выпуска (может быть null)
+     * @param lastEventId  идентификатор последнего полученного события из заголовка Last-Event-ID
+     * @param resumeFrom   то же значение в виде параметра запроса (может быть null)
+     * @return SSE-эмиттер с событиями add, update, delete и reset
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents(@RequestParam(required = false) String brand,
+                                   @RequestParam(required = false) Integer releaseYear,
+                                   @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                                   @RequestParam(required = false) Long resumeFrom) {
+        return carEventStream.subscribe(brand, releaseYear, lastEventId != null ? lastEventId : resumeFrom);
+    }
+
+    /**
+     * Аналитический запрос к кубу «марка × год выпуска × месяц регистрации».
+     *
+     * Фиксированное значение параметра даёт срез, диапазоны — кубик, а параметр groupBy
+     * задаёт уровень свёртки (например, groupBy=brand или groupBy=brand,month).
+     *
+     * @param brand     марки автомобилей (может быть null)
+     * @param yearFrom  минимальный год выпуска (может быть null)
+     * @param yearTo    максимальный год выпуска (может быть null)
+     * @param from      первый месяц регистрации в формате yyyy-MM (может быть null)
+     * @param to        последний месяц регистрации в формате yyyy-MM (может быть null)
+     * @param groupBy   измерения группировки: brand, year, month (может быть null)
+     * @return итог и количество автомобилей по группам
+     */
+    @GetMapping("/analytics")
+    public ResponseEntity<?> getAnalytics(@RequestParam(required = false) List<String> brand,
+                                          @RequestParam(required = false) Integer yearFrom,
+                                          @RequestParam(required = false) Integer yearTo,
+                                          @RequestParam(required = false) YearMonth from,
+                                          @RequestParam(required = false) YearMonth to,
+                                          @RequestParam(required = false) List<String> groupBy) {
+        List<CarAnalyticsCube.Dimension> dimensions = new ArrayList<>();
+        try {
+            if (groupBy != null) {
+                for (String dimension : groupBy) {
+                    dimensions.add(CarAnalyticsCube.Dimension.valueOf(dimension.trim().toUpperCase(Locale.ROOT)));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(Collections.singletonMap("error", "Неизвестное измерение группировки: " + groupBy));
+        }
+        return ResponseEntity.ok(carAnalyticsCube.query(brand, yearFrom, yearTo, from, to, dimensions));
+    }
+
     /**
      * Возвращает список моделей автомобилей по коду марки.
      *
      * @param brandCode код марки автомобиля
+     * @param year      год выпуска (может быть null); если указан, возвращаются только модели,
+     *                  выпускавшиеся в этом году
      * @return список моделей автомобилей, соответствующих заданному коду марки
      */
     @GetMapping("/models")
     @CrossOrigin(origins = "http://localhost:3000") // Указать ваш фронтенд URL
     @ResponseBody
-    public List<CarModel> getModels(@RequestParam String brandCode) {
+    public List<CarModel> getModels(@RequestParam String brandCode,
+                                    @RequestParam(required = false) Integer year) {
+        if (year != null) {
+            return carCatalog.findModelsByYear(carCatalog.resolveBrandId(brandCode), year);
+        }
         return carModelRepository.findByCarBrand_BrandCode(brandCode);
     }
 
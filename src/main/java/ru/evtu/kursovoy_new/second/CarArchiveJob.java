@@ -0,0 +1,59 @@
+package ru.evtu.kursovoy_new.second;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Плановая задача переноса старых регистраций из cars в cars_archive.
+ *
+ * Строки переносятся небольшими порциями, каждая в собственной транзакции,
+ * чтобы не держать длинные блокировки на оперативной таблице. При шардировании задача
+ * не создаётся: автомобили хранятся на шардах, а {@link ShardedCarStore} архив не читает.
+ */
+@Component
+@ConditionalOnProperty(name = "cars.sharding.enabled", havingValue = "false", matchIfMissing = true)
+public class CarArchiveJob {
+
+    private static final Logger log = LoggerFactory.getLogger(CarArchiveJob.class);
+
+    private final CarArchiveRepository carArchiveRepository;
+    private final PartitionedCarReader partitionedCarReader;
+    private final boolean enabled;
+    private final int batchSize;
+
+    public CarArchiveJob(CarArchiveRepository carArchiveRepository,
+                         PartitionedCarReader partitionedCarReader,
+                         @Value("${cars.archive.enabled:true}") boolean enabled,
+                         @Value("${cars.archive.batch-size:1000}") int batchSize) {
+        this.carArchiveRepository = carArchiveRepository;
+        this.partitionedCarReader = partitionedCarReader;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Переносит в архив все автомобили, зарегистрированные раньше границы архива.
+     */
+    @Scheduled(cron = "${cars.archive.cron:0 30 3 * * *}")
+    public void archive() {
+        if (!enabled) {
+            return;
+        }
+        LocalDate cutoff = partitionedCarReader.getArchiveBoundary();
+        int total = 0;
+        int moved;
+        do {
+            moved = carArchiveRepository.archiveBatch(cutoff, batchSize);
+            total += moved;
+        } while (moved == batchSize);
+        if (total > 0) {
+            log.info("В архив перенесено {} автомобилей, зарегистрированных до {}", total, cutoff);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package ru.evtu.kursovoy_new.second;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Репозиторий архивной таблицы cars_archive.
+ *
+ * Архив имеет ту же структуру, что и cars, и хранит автомобили, зарегистрированные
+ * раньше границы хранения. Оперативная таблица cars остаётся небольшой, поэтому запросы
+ * по недавним регистрациям не зависят от объёма накопленной истории.
+ */
+@Repository
+public class CarArchiveRepository {
+
+    /** Столбцы, переносимые в архив (порядок одинаков для обеих таблиц). */
+    static final String COLUMNS = "id, brand, release_year, reg_date, owner_name, owner_id, brand_id, model_id";
+
+    static final RowMapper<Car> CAR_ROW_MAPPER = (rs, rowNum) -> {
+        Car car = new Car();
+        car.setId(rs.getLong("id"));
+        car.setBrand(rs.getString("brand"));
+        car.setReleaseYear(rs.getInt("release_year"));
+        Date regDate = rs.getDate("reg_date");
+        car.setRegDate(regDate != null ? regDate.toLocalDate() : null);
+        car.setOwnerName(rs.getString("owner_name"));
+        car.setOwnerId(rs.getObject("owner_id", Long.class));
+        car.setBrandId(rs.getObject("brand_id", Long.class));
+        car.setModelId(rs.getObject("model_id", Long.class));
+        return car;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+
+    public CarArchiveRepository(JdbcTemplate jdbcTemplate, @Value("${cars.archive.enabled:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Создаёт архивную таблицу по образцу cars, если её ещё нет.
+     */
+    @PostConstruct
+    public void createTableIfMissing() {
+        if (enabled) {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS cars_archive LIKE cars");
+        }
+    }
+
+    /**
+     * Проверяет, включён ли архив.
+     *
+     * @return true, если таблица cars_archive используется
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public List<Car> findAll() {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM cars_archive", CAR_ROW_MAPPER);
+    }
+
+    public Optional<Car> findById(Long id) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM cars_archive WHERE id = ?", CAR_ROW_MAPPER, id)
+                .stream().findFirst();
+    }
+
+    public List<Car> findByIdIn(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM cars_archive WHERE id IN (" + placeholders + ")",
+                CAR_ROW_MAPPER, ids.toArray());
+    }
+
+    /**
+     * Обновляет автомобиль, находящийся в архиве. Если новая дата регистрации не раньше
+     * границы архива (или не задана), строка возвращается в cars в той же транзакции:
+     * поиск по недавним датам архив не читает.
+     *
+     * @param car      автомобиль с заполненным идентификатором
+     * @param boundary текущая граница архива
+     * @return true, если строка найдена в архиве и обновлена
+     */
+    @Transactional
+    public boolean update(Car car, LocalDate boundary) {
+        if (!updateInPlace(car)) {
+            return false;
+        }
+        if (car.getRegDate() == null || !car.getRegDate().isBefore(boundary)) {
+            jdbcTemplate.update("INSERT INTO cars (" + COLUMNS + ") SELECT " + COLUMNS
+                    + " FROM cars_archive WHERE id = ?", car.getId());
+            jdbcTemplate.update("DELETE FROM cars_archive WHERE id = ?", car.getId());
+        }
+        return true;
+    }
+
+    private boolean updateInPlace(Car car) {
+        return jdbcTemplate.update("UPDATE cars_archive SET brand = ?, release_year = ?, reg_date = ?, owner_name = ?, "
+                        + "owner_id = ?, brand_id = ?, model_id = ? WHERE id = ?",
+                car.getBrand(), car.getReleaseYear(), car.getRegDate() != null ? Date.valueOf(car.getRegDate()) : null,
+                car.getOwnerName(), car.getOwnerId(), car.getBrandId(), car.getModelId(), car.getId()) > 0;
+    }
+
+    public void deleteById(Long id) {
+        jdbcTemplate.update("DELETE FROM cars_archive WHERE id = ?", id);
+    }
+
+    public List<Car> findAfterIdOrderById(long afterId, int limit) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM cars_archive WHERE id > ? ORDER BY id LIMIT ?",
+                CAR_ROW_MAPPER, afterId, limit);
+    }
+
+    public List<Car> findFirstOrderById(int limit) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM cars_archive ORDER BY id LIMIT ?", CAR_ROW_MAPPER, limit);
+    }
+
+    public List<Car> findByRegDateBetween(LocalDate startDate, LocalDate endDate) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM cars_archive WHERE reg_date BETWEEN ? AND ?",
+                CAR_ROW_MAPPER, Date.valueOf(startDate), Date.valueOf(endDate));
+    }
+
+    public List<Car> findByBrandIgnoreCase(String brand) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM cars_archive WHERE UPPER(brand) = ?",
+                CAR_ROW_MAPPER, brand.toUpperCase(Locale.ROOT));
+    }
+
+    public List<Car> findByBrandContainingIgnoreCase(String title) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM cars_archive WHERE UPPER(brand) LIKE ?",
+                CAR_ROW_MAPPER, "%" + (title != null ? title.toUpperCase(Locale.ROOT) : "") + "%");
+    }
+
+    public List<Car> findByReleaseYearEquals(Integer releaseYear) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM cars_archive WHERE release_year = ?",
+                CAR_ROW_MAPPER, releaseYear);
+    }
+
+    public List<Car> findByOwnerNameEquals(String ownerName) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM cars_archive WHERE owner_name = ?",
+                CAR_ROW_MAPPER, ownerName);
+    }
+
+    public List<Car> findByOwnerId(Long ownerId) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM cars_archive WHERE owner_id = ?",
+                CAR_ROW_MAPPER, ownerId);
+    }
+
+    public List<Car> findByBrandIdIn(Collection<Long> brandIds) {
+        String placeholders = String.join(",", Collections.nCopies(brandIds.size(), "?"));
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM cars_archive WHERE brand_id IN (" + placeholders + ")",
+                CAR_ROW_MAPPER, brandIds.toArray());
+    }
+
+    public List<Car> findByBrandIdIsNullAndBrandContainingIgnoreCase(String title) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM cars_archive WHERE brand_id IS NULL AND UPPER(brand) LIKE ?",
+                CAR_ROW_MAPPER, "%" + (title != null ? title.toUpperCase(Locale.ROOT) : "") + "%");
+    }
+
+    /**
+     * Переносит в архив одну порцию автомобилей, зарегистрированных раньше указанной даты.
+     *
+     * @param cutoff    граница: переносятся строки с reg_date строго меньше неё
+     * @param batchSize максимальный размер порции
+     * @return количество перенесённых строк
+     */
+    @Transactional
+    public int archiveBatch(LocalDate cutoff, int batchSize) {
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT id FROM cars WHERE reg_date < ? ORDER BY id LIMIT ? FOR UPDATE",
+                Long.class, Date.valueOf(cutoff), batchSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        Object[] args = ids.toArray();
+        jdbcTemplate.update("INSERT INTO cars_archive (" + COLUMNS + ") SELECT " + COLUMNS
+                + " FROM cars WHERE id IN (" + placeholders + ")", args);
+        jdbcTemplate.update("DELETE FROM cars WHERE id IN (" + placeholders + ")", args);
+        return ids.size();
+    }
+}
@@ -0,0 +1,179 @@
+package ru.evtu.kursovoy_new.second;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Component;
+import ru.evtu.kursovoy_new.cluster.ClusterInvalidationListener;
+import ru.evtu.kursovoy_new.cluster.Invalidation;
+import ru.evtu.kursovoy_new.cluster.InvalidationBus;
+
+import java.util.*;
+
+/**
+ * Словарь каталога марок и моделей в памяти.
+ *
+ * Сопоставляет строковые значения марки (код, латинское или кириллическое название,
+ * без учёта регистра) с идентификатором car_brands, а код модели — с идентификатором
+ * car_models в пределах марки. Используется при записи автомобилей, чтобы хранить
+ * целочисленные ключи brand_id/model_id, и при поиске, чтобы фильтровать по ним.
+ * Для каждой марки строится дерево интервалов годов производства моделей
+ * ({@link ModelYearIndex}), по которому подбираются модели года и проверяется год выпуска.
+ */
+@Component
+public class CarCatalog implements ClusterInvalidationListener {
+
+    private final CarBrandRepository carBrandRepository;
+    private final CarModelRepository carModelRepository;
+
+    private volatile Snapshot snapshot = new Snapshot(Map.of(), Map.of(), Map.of(), Map.of(), Map.of(), Map.of());
+
+    public CarCatalog(CarBrandRepository carBrandRepository, CarModelRepository carModelRepository) {
+        this.carBrandRepository = carBrandRepository;
+        this.carModelRepository = carModelRepository;
+    }
+
+    /**
+     * Загружает (или перезагружает) каталог из базы данных.
+     */
+    @PostConstruct
+    public void reload() {
+        Map<String, Long> brandIds = new HashMap<>();
+        Map<Long, List<String>> brandKeys = new HashMap<>();
+        Map<Long, CarBrand> brands = new HashMap<>();
+        for (CarBrand brand : carBrandRepository.findAll()) {
+            brands.put(brand.getId(), brand);
+            List<String> keys = new ArrayList<>();
+            for (String value : new String[]{brand.getBrandCode(), brand.getBrandName(), brand.getBrandCyrillic()}) {
+                String key = key(value);
+                if (key != null) {
+                    brandIds.putIfAbsent(key, brand.getId()); // Код марки имеет приоритет над названиями
+                    keys.add(key);
+                }
+            }
+            brandKeys.put(brand.getId(), keys);
+        }
+        Map<String, Long> modelIds = new HashMap<>();
+        Map<Long, CarModel> models = new HashMap<>();
+        Map<Long, List<CarModel>> modelsByBrand = new HashMap<>();
+        for (CarModel model : carModelRepository.findAll()) {
+            if (model.getCarBrand() == null) {
+                continue;
+            }
+            models.put(model.getId(), model);
+            modelsByBrand.computeIfAbsent(model.getCarBrand().getId(), id -> new ArrayList<>()).add(model);
+            String key = key(model.getModelCode());
+            if (key != null) {
+                modelIds.put(model.getCarBrand().getId() + "|" + key, model.getId());
+            }
+        }
+        Map<Long, ModelYearIndex> modelYears = new HashMap<>();
+        modelsByBrand.forEach((brandId, brandModels) -> modelYears.put(brandId, new ModelYearIndex(brandModels)));
+        snapshot = new Snapshot(brandIds, brandKeys, brands, modelIds, models, modelYears);
+    }
+
+    /**
+     * Перезагружает каталог, если другой узел опубликовал изменение темы catalog
+     * (после правки car_brands/car_models оператор вызывает {@link CarCatalogEndpoint}).
+     */
+    @Override
+    public void onRemoteInvalidations(List<Invalidation> invalidations) {
+        if (invalidations.stream().anyMatch(invalidation -> InvalidationBus.TOPIC_CATALOG.equals(invalidation.topic()))) {
+            reload();
+        }
+    }
+
+    /**
+     * Возвращает идентификатор марки по её коду или названию.
+     *
+     * @param brand код, латинское или кириллическое название марки
+     * @return идентификатор марки или null, если марки нет в каталоге
+     */
+    public Long resolveBrandId(String brand) {
+        String key = key(brand);
+        return key != null ? snapshot.brandIds().get(key) : null;
+    }
+
+    /**
+     * Возвращает идентификатор модели по её коду в пределах марки.
+     *
+     * @param brandId   идентификатор марки
+     * @param modelCode код модели
+     * @return идентификатор модели или null
+     */
+    public Long resolveModelId(Long brandId, String modelCode) {
+        String key = key(modelCode);
+        return brandId != null && key != null ? snapshot.modelIds().get(brandId + "|" + key) : null;
+    }
+
+    /**
+     * Находит марки, код или название которых содержит заданный фрагмент.
+     *
+     * @param fragment фрагмент без учёта регистра
+     * @return множество идентификаторов марок
+     */
+    public Set<Long> findBrandIdsContaining(String fragment) {
+        String needle = fragment != null ? fragment.trim().toUpperCase(Locale.ROOT) : "";
+        Set<Long> ids = new HashSet<>();
+        for (Map.Entry<Long, List<String>> entry : snapshot.brandKeys().entrySet()) {
+            for (String key : entry.getValue()) {
+                if (key.contains(needle)) {
+                    ids.add(entry.getKey());
+                    break;
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Возвращает марку по идентификатору.
+     *
+     * @param brandId идентификатор марки
+     * @return марка или null
+     */
+    public CarBrand getBrand(Long brandId) {
+        return brandId != null ? snapshot.brands().get(brandId) : null;
+    }
+
+    /**
+     * Находит модели марки, выпускавшиеся в указанном году.
+     *
+     * @param brandId идентификатор марки
+     * @param year    год выпуска
+     * @return модели марки; пустой список, если марка неизвестна
+     */
+    public List<CarModel> findModelsByYear(Long brandId, int year) {
+        ModelYearIndex index = brandId != null ? snapshot.modelYears().get(brandId) : null;
+        return index != null ? index.findByYear(year) : List.of();
+    }
+
+    /**
+     * Проверяет год выпуска по годам производства моделей каталога.
+     *
+     * Если модель указана, год должен попадать в её интервал выпуска. Если указана только
+     * марка, год должен попадать в интервал хотя бы одной модели марки. Марки вне каталога
+     * и марки без моделей не проверяются.
+     *
+     * @param brandId     идентификатор марки (может быть null)
+     * @param modelId     идентификатор модели (может быть null)
+     * @param releaseYear год выпуска
+     * @return true, если год допустим
+     */
+    public boolean isReleaseYearValid(Long brandId, Long modelId, int releaseYear) {
+        Snapshot current = snapshot;
+        CarModel model = modelId != null ? current.models().get(modelId) : null;
+        if (model != null) {
+            return ModelYearIndex.contains(model, releaseYear);
+        }
+        ModelYearIndex index = brandId != null ? current.modelYears().get(brandId) : null;
+        return index == null || index.isEmpty() || !index.findByYear(releaseYear).isEmpty();
+    }
+
+    private static String key(String value) {
+        return value != null && !value.isBlank() ? value.trim().toUpperCase(Locale.ROOT) : null;
+    }
+
+    private record Snapshot(Map<String, Long> brandIds, Map<Long, List<String>> brandKeys,
+                            Map<Long, CarBrand> brands, Map<String, Long> modelIds,
+                            Map<Long, CarModel> models, Map<Long, ModelYearIndex> modelYears) {
+    }
+}
@@ -0,0 +1,30 @@
+package ru.evtu.kursovoy_new.second;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+import ru.evtu.kursovoy_new.cluster.InvalidationBus;
+
+/**
+ * Actuator-эндпоинт /actuator/catalog: перезагрузка каталога марок и моделей после правки
+ * car_brands/car_models. Каталог перезагружается на этом узле, а остальные узлы получают
+ * изменение темы catalog через {@link InvalidationBus}.
+ */
+@Component
+@Endpoint(id = "catalog")
+public class CarCatalogEndpoint {
+
+    private final CarCatalog carCatalog;
+    private final InvalidationBus invalidationBus;
+
+    public CarCatalogEndpoint(CarCatalog carCatalog, InvalidationBus invalidationBus) {
+        this.carCatalog = carCatalog;
+        this.invalidationBus = invalidationBus;
+    }
+
+    @WriteOperation
+    public void reload() {
+        carCatalog.reload();
+        invalidationBus.publish(InvalidationBus.TOPIC_CATALOG, null, "reload");
+    }
+}
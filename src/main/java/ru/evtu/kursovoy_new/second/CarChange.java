@@ -0,0 +1,61 @@
+package ru.evtu.kursovoy_new.second;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Запись истории изменений автомобиля.
+ *
+ * @param id        порядковый номер записи (0 до сохранения)
+ * @param carId     идентификатор автомобиля
+ * @param type      тип события: add, update или delete
+ * @param changedAt время изменения
+ * @param changes   изменённые поля
+ */
+public record CarChange(long id, long carId, String type, Instant changedAt, List<FieldChange> changes) {
+
+    /**
+     * Изменение одного поля.
+     *
+     * @param field    имя поля автомобиля
+     * @param oldValue значение до изменения (null для добавления)
+     * @param newValue значение после изменения (null для удаления)
+     */
+    public record FieldChange(String field, Object oldValue, Object newValue) {
+    }
+
+    private record Field(String name, Function<Car, Object> getter) {
+    }
+
+    /** Отслеживаемые поля автомобиля в порядке вывода. */
+    private static final List<Field> FIELDS = List.of(
+            new Field("brand", Car::getBrand),
+            new Field("releaseYear", Car::getReleaseYear),
+            new Field("regDate", car -> car.getRegDate() != null ? car.getRegDate().toString() : null),
+            new Field("ownerName", Car::getOwnerName),
+            new Field("ownerId", Car::getOwnerId),
+            new Field("brandId", Car::getBrandId),
+            new Field("modelId", Car::getModelId));
+
+    /**
+     * Сравнивает два состояния автомобиля по всем полям.
+     *
+     * @param before состояние до изменения (null для добавления)
+     * @param after  состояние после изменения (null для удаления)
+     * @return список полей, значения которых различаются
+     */
+    public static List<FieldChange> diff(Car before, Car after) {
+        List<FieldChange> changes = new ArrayList<>();
+        for (Field field : FIELDS) {
+            Object oldValue = before != null ? field.getter().apply(before) : null;
+            Object newValue = after != null ? field.getter().apply(after) : null;
+            if (!Objects.equals(oldValue, newValue)) {
+                changes.add(new FieldChange(field.name(), oldValue, newValue));
+            }
+        }
+        return changes;
+    }
+}
@@ -0,0 +1,36 @@
+package ru.evtu.kursovoy_new.second;
+
+/**
+ * Слушатель изменений автомобилей.
+ *
+ * CarService вызывает зарегистрированные реализации после каждой успешной записи
+ * (добавление, обновление, удаление), что позволяет поддерживать производные
+ * структуры в памяти без повторного чтения таблицы cars.
+ */
+public interface CarChangeListener {
+
+    /**
+     * Вызывается после сохранения нового автомобиля.
+     *
+     * @param car сохранённый автомобиль
+     */
+    default void onCarAdded(Car car) {
+    }
+
+    /**
+     * Вызывается после обновления автомобиля.
+     *
+     * @param before копия автомобиля до изменения
+     * @param after  автомобиль после изменения
+     */
+    default void onCarUpdated(Car before, Car after) {
+    }
+
+    /**
+     * Вызывается после удаления автомобиля.
+     *
+     * @param car удалённый автомобиль
+     */
+    default void onCarDeleted(Car car) {
+    }
+}
@@ -0,0 +1,231 @@
+package ru.evtu.kursovoy_new.second;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Журнал версий автомобилей для инкрементальной синхронизации клиентов.
+ *
+ * Каждое изменение получает новую монотонную версию (AUTO_INCREMENT) в таблице car_change_log,
+ * а предыдущая запись того же автомобиля удаляется: журнал хранит не больше одной записи
+ * на автомобиль, поэтому его размер зависит от числа изменённых автомобилей, а не от числа
+ * изменений. Удаления хранятся как надгробия и очищаются по истечении срока хранения;
+ * наибольшая очищенная версия запоминается в car_change_log_meta, и клиенту с более старой
+ * версией предлагается полная пересинхронизация.
+ *
+ * Запись журнала делается в той же транзакции, что и изменение автомобиля (см. {@link #saveLogged}):
+ * если её не удалось записать, изменение откатывается, и копии клиентов не расходятся с базой.
+ * При шардировании строка автомобиля пишется в базу шарда, поэтому её откат невозможен; ошибка
+ * журнала в этом случае возвращается вызывающему как ошибка записи.
+ *
+ * Версии AUTO_INCREMENT фиксируются не строго по порядку, поэтому клиенту отдаются только
+ * записи старше задержки видимости: к этому времени все меньшие версии уже зафиксированы.
+ * Это верно, только если каждая транзакция фиксируется не позднее чем через cars.changes.visibility-lag-ms
+ * после вставки записи журнала; запись журнала — последний оператор транзакции, поэтому задержка
+ * должна покрывать лишь время фиксации с запасом на паузы базы.
+ * Версия клиента сравнивается с наибольшей выданной версией без учёта задержки: запись
+ * вытесняется только в одной транзакции с вставкой большей версии, а очищенные надгробия
+ * учтены в purged_version, поэтому эта граница со временем не уменьшается.
+ */
+@Component
+public class CarChangeLog {
+
+    private static final Logger log = LoggerFactory.getLogger(CarChangeLog.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CarStore carStore;
+    private final long visibilityLagMs;
+    private final long tombstoneRetentionHours;
+
+    public CarChangeLog(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, CarStore carStore,
+                        @Value("${cars.changes.visibility-lag-ms:1000}") long visibilityLagMs,
+                        @Value("${cars.changes.tombstone-retention-hours:168}") long tombstoneRetentionHours) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.carStore = carStore;
+        this.visibilityLagMs = visibilityLagMs;
+        this.tombstoneRetentionHours = tombstoneRetentionHours;
+    }
+
+    /**
+     * Создаёт таблицы журнала, если их ещё нет.
+     */
+    @PostConstruct
+    public void createTablesIfMissing() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS car_change_log ("
+                + "version BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "car_id BIGINT NOT NULL, "
+                + "change_type VARCHAR(8) NOT NULL, "
+                + "changed_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3), "
+                + "INDEX idx_car_change_log_car (car_id), "
+                + "INDEX idx_car_change_log_type (change_type, changed_at))");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS car_change_log_meta ("
+                + "id INT PRIMARY KEY, "
+                + "purged_version BIGINT NOT NULL)");
+        jdbcTemplate.update("INSERT IGNORE INTO car_change_log_meta (id, purged_version) VALUES (1, 0)");
+    }
+
+    /**
+     * Сохраняет автомобиль и записывает его новую версию в одной транзакции.
+     *
+     * @param write сохранение автомобиля; возвращает сохранённый автомобиль с идентификатором
+     * @return сохранённый автомобиль
+     */
+    public Car saveLogged(Supplier<Car> write) {
+        return transactionTemplate.execute(status -> {
+            Car car = write.get();
+            record(car.getId(), "upsert");
+            return car;
+        });
+    }
+
+    /**
+     * Удаляет автомобиль и записывает надгробие в одной транзакции.
+     *
+     * @param carId идентификатор автомобиля
+     * @param write удаление автомобиля
+     */
+    public void deleteLogged(Long carId, Runnable write) {
+        transactionTemplate.executeWithoutResult(status -> {
+            write.run();
+            record(carId, "delete");
+        });
+    }
+
+    /**
+     * Возвращает изменения после указанной версии.
+     *
+     * @param since последняя версия, известная клиенту (null — клиент ещё не синхронизирован)
+     * @param limit максимальное число изменений в ответе
+     * @return изменения или признак необходимости полной пересинхронизации
+     */
+    public Delta changesSince(Long since, int limit) {
+        long purged = purgedVersion();
+        if (since == null || since < purged || since > issuedVersion(purged)) {
+            // Клиент должен сначала загрузить полный список, а затем запрашивать изменения после этой версии
+            return new Delta(Math.max(visibleVersion(), purged), true, false, List.of());
+        }
+
+        List<Entry> entries = jdbcTemplate.query("SELECT version, car_id, change_type FROM car_change_log "
+                        + "WHERE version > ? AND changed_at <= CURRENT_TIMESTAMP(3) - INTERVAL ? MICROSECOND "
+                        + "ORDER BY version LIMIT ?",
+                (rs, rowNum) -> new Entry(rs.getLong("version"), rs.getLong("car_id"), rs.getString("change_type")),
+                since, visibilityLagMs * 1000, limit);
+        if (entries.isEmpty()) {
+            return new Delta(since, false, false, List.of());
+        }
+
+        Set<Long> upserted = entries.stream()
+                .filter(entry -> "upsert".equals(entry.type()))
+                .map(Entry::carId)
+                .collect(Collectors.toSet());
+        Map<Long, Car> cars = upserted.isEmpty() ? Map.of() : carStore.findByIdIn(upserted).stream()
+                .collect(Collectors.toMap(Car::getId, Function.identity()));
+
+        List<Change> changes = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            Car car = cars.get(entry.carId());
+            // Автомобиль, не найденный ни в одной таблице, передаётся надгробием, чтобы копия клиента не расходилась
+            String type = "upsert".equals(entry.type()) && car == null ? "delete" : entry.type();
+            changes.add(new Change(entry.version(), type, entry.carId(), car));
+        }
+        return new Delta(entries.get(entries.size() - 1).version(), false, entries.size() == limit, changes);
+    }
+
+    /**
+     * Удаляет надгробия старше срока хранения и сдвигает границу очищенных версий.
+     * Записи о добавлении и изменении не удаляются: устаревшие версии вытесняются при записи.
+     */
+    @Scheduled(cron = "${cars.changes.compaction-cron:0 15 4 * * *}")
+    public void compact() {
+        Long purgeUpTo = jdbcTemplate.queryForObject("SELECT MAX(version) FROM car_change_log "
+                + "WHERE change_type = 'delete' AND changed_at < CURRENT_TIMESTAMP(3) - INTERVAL ? HOUR",
+                Long.class, tombstoneRetentionHours);
+        if (purgeUpTo == null) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            // Граница сдвигается до удаления, чтобы клиент не получил неполный ответ без признака пересинхронизации
+            jdbcTemplate.update("UPDATE car_change_log_meta SET purged_version = GREATEST(purged_version, ?) WHERE id = 1",
+                    purgeUpTo);
+            int deleted = jdbcTemplate.update("DELETE FROM car_change_log WHERE change_type = 'delete' AND version <= ?",
+                    purgeUpTo);
+            log.info("Журнал изменений автомобилей: удалено {} надгробий до версии {}", deleted, purgeUpTo);
+        });
+    }
+
+    /**
+     * Наибольшая выданная версия (без учёта задержки видимости).
+     */
+    private long issuedVersion(long purged) {
+        Long version = jdbcTemplate.queryForObject("SELECT MAX(version) FROM car_change_log", Long.class);
+        return Math.max(version != null ? version : 0, purged);
+    }
+
+    /**
+     * Наибольшая версия старше задержки видимости. Просматриваются только записи,
+     * изменённые за время задержки, поэтому запрос дешёвый.
+     */
+    private long visibleVersion() {
+        List<Long> versions = jdbcTemplate.queryForList("SELECT version FROM car_change_log "
+                + "WHERE changed_at <= CURRENT_TIMESTAMP(3) - INTERVAL ? MICROSECOND ORDER BY version DESC LIMIT 1",
+                Long.class, visibilityLagMs * 1000);
+        return versions.isEmpty() ? 0 : versions.get(0);
+    }
+
+    private long purgedVersion() {
+        Long purged = jdbcTemplate.queryForObject("SELECT purged_version FROM car_change_log_meta WHERE id = 1", Long.class);
+        return purged != null ? purged : 0;
+    }
+
+    /**
+     * Записывает новую версию автомобиля и удаляет предыдущую (в транзакции изменения автомобиля).
+     */
+    private void record(Long carId, String type) {
+        if (carId == null) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM car_change_log WHERE car_id = ?", carId);
+            jdbcTemplate.update("INSERT INTO car_change_log (car_id, change_type) VALUES (?, ?)", carId, type);
+        });
+    }
+
+    private record Entry(long version, long carId, String type) {
+    }
+
+    /**
+     * Изменение автомобиля.
+     *
+     * @param version версия изменения
+     * @param type    upsert (автомобиль добавлен или изменён) или delete (надгробие)
+     * @param id      идентификатор автомобиля
+     * @param car     текущее состояние автомобиля (null для delete)
+     */
+    public record Change(long version, String type, long id, Car car) {
+    }
+
+    /**
+     * Ответ инкрементальной синхронизации.
+     *
+     * @param version версия, с которой клиент продолжит синхронизацию
+     * @param resync  true, если клиент должен заново загрузить полный список
+     * @param hasMore true, если после version есть ещё изменения
+     * @param changes изменения по возрастанию версий
+     */
+    public record Delta(long version, boolean resync, boolean hasMore, List<Change> changes) {
+    }
+}
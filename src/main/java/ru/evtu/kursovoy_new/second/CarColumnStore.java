@@ -0,0 +1,595 @@
+package ru.evtu.kursovoy_new.second;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import ru.evtu.kursovoy_new.cluster.ClusterInvalidationListener;
+import ru.evtu.kursovoy_new.cluster.Invalidation;
+import ru.evtu.kursovoy_new.cluster.InvalidationBus;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * Колоночная копия таблицы автомобилей в памяти.
+ *
+ * Каждое поле хранится в отдельном массиве примитивов: long[] идентификаторы,
+ * short[] годы выпуска, int[] даты регистрации в днях от эпохи, а марка и владелец —
+ * int-кодами словарей. Фильтры поиска выполняются последовательным проходом по одному
+ * массиву с записью совпадений в битовую карту, поэтому не требуют обращения к базе данных.
+ * Копия загружается при старте (если включена свойством cars.columnar.enabled) и далее
+ * поддерживается через {@link CarChangeListener}. Пока копия не загружена, сервис
+ * обращается к хранилищу как обычно.
+ */
+@Component
+@Order(1) // После миграций данных (0) и до прогрева, который выполняется последним
+public class CarColumnStore implements CarChangeListener, ClusterInvalidationListener, ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(CarColumnStore.class);
+
+    /** Значение для отсутствующей даты регистрации или года выпуска. */
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final short NO_YEAR = Short.MIN_VALUE;
+
+    /** Байт на строку в массивах столбцов: id + год + дата + марка + владелец + модель. */
+    private static final int COLUMN_BYTES_PER_ROW = Long.BYTES + Short.BYTES + Integer.BYTES
+            + Integer.BYTES + Integer.BYTES + Long.BYTES;
+
+    private final boolean enabled;
+    private final CarStore carStore;
+    private final CarCatalog carCatalog;
+    private final OwnerDirectory ownerDirectory;
+    private final Timer filterTimer;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready;
+    private Set<Long> changedDuringLoad; // Не null во время загрузки; доступ под блокировкой записи
+
+    // Столбцы; строки [0, size) заняты, удаление переносит последнюю строку на место удалённой
+    private int size;
+    private long[] ids = new long[0];
+    private short[] years = new short[0];
+    private int[] regDays = new int[0];
+    private int[] brands = new int[0];
+    private int[] owners = new int[0];
+    private long[] modelIds = new long[0]; // 0 — модель не указана
+    private final Map<Long, Integer> rowById = new HashMap<>();
+
+    // Словари: (марка, brandId) и (имя владельца, ownerId) -> код
+    private final Dictionary<BrandEntry> brandDictionary = new Dictionary<>();
+    private final Dictionary<OwnerEntry> ownerDictionary = new Dictionary<>();
+
+    public CarColumnStore(@Value("${cars.columnar.enabled:false}") boolean enabled,
+                          CarStore carStore, CarCatalog carCatalog, OwnerDirectory ownerDirectory,
+                          MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.carStore = carStore;
+        this.carCatalog = carCatalog;
+        this.ownerDirectory = ownerDirectory;
+        this.filterTimer = Timer.builder("cars.columnar.filter")
+                .description("Время выполнения фильтров по колоночной копии автомобилей")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        meterRegistry.gauge("cars.columnar.rows", this, CarColumnStore::getRowCount);
+        meterRegistry.gauge("cars.columnar.bytes", this, CarColumnStore::getEstimatedBytes);
+    }
+
+    /**
+     * Загружает копию из хранилища, если она включена.
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        if (enabled) {
+            reload();
+        }
+    }
+
+    /**
+     * Полностью перечитывает автомобили из хранилища.
+     *
+     * Снимок читается без блокировки, поэтому изменения, пришедшие во время чтения, не
+     * применяются к копии, а запоминаются по идентификаторам и перечитываются из хранилища
+     * после загрузки снимка. Если копия выключена свойством cars.columnar.enabled,
+     * ничего не делает: перезагрузка не должна включать её в обход конфигурации.
+     */
+    public synchronized void reload() {
+        if (!enabled) {
+            log.warn("Колоночная копия выключена (cars.columnar.enabled=false), перезагрузка пропущена");
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            changedDuringLoad = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        List<Car> cars;
+        try {
+            cars = carStore.findAll();
+        } catch (RuntimeException e) {
+            Set<Long> changed;
+            lock.writeLock().lock();
+            try {
+                changed = changedDuringLoad;
+                changedDuringLoad = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (ready) {
+                refresh(changed); // Прежняя копия остаётся в работе и не должна пропустить изменения
+            }
+            throw e;
+        }
+        Set<Long> changed;
+        lock.writeLock().lock();
+        try {
+            size = 0;
+            rowById.clear();
+            brandDictionary.clear();
+            ownerDictionary.clear();
+            grow(cars.size());
+            for (Car car : cars) {
+                append(car);
+            }
+            changed = changedDuringLoad;
+            changedDuringLoad = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        refresh(changed);
+        log.info("Колоночная копия автомобилей загружена: {} строк, {} марок, {} владельцев, ~{} байт на строку",
+                cars.size(), brandDictionary.size(), ownerDictionary.size(), getBytesPerRow());
+    }
+
+    /**
+     * Проверяет, может ли копия отвечать на запросы.
+     *
+     * @return true, если копия включена и загружена
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void onCarAdded(Car car) {
+        lock.writeLock().lock();
+        try {
+            if (deferWhileLoading(car.getId()) || !ready) {
+                return;
+            }
+            upsert(car);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onCarUpdated(Car before, Car after) {
+        onCarAdded(after);
+    }
+
+    @Override
+    public void onCarDeleted(Car car) {
+        if (car.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (deferWhileLoading(car.getId()) || !ready) {
+                return;
+            }
+            remove(car.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Перечитывает из хранилища строки автомобилей, изменённых на других узлах.
+     */
+    @Override
+    public void onRemoteInvalidations(List<Invalidation> invalidations) {
+        Set<Long> carIds = new LinkedHashSet<>();
+        for (Invalidation invalidation : invalidations) {
+            if (InvalidationBus.TOPIC_CARS.equals(invalidation.topic()) && invalidation.key() != null) {
+                carIds.add(invalidation.key());
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            if (changedDuringLoad != null) {
+                changedDuringLoad.addAll(carIds);
+                return;
+            }
+            if (!ready) {
+                return;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        refresh(carIds);
+    }
+
+    /**
+     * Запоминает изменённый автомобиль, если идёт загрузка снимка. Вызывается под блокировкой записи.
+     *
+     * @return true, если изменение отложено до окончания загрузки
+     */
+    private boolean deferWhileLoading(Long carId) {
+        if (changedDuringLoad == null) {
+            return false;
+        }
+        if (carId != null) {
+            changedDuringLoad.add(carId);
+        }
+        return true;
+    }
+
+    /**
+     * Перечитывает строки указанных автомобилей одним запросом; не найденные удаляются из копии.
+     */
+    private void refresh(Set<Long> carIds) {
+        if (carIds.isEmpty()) {
+            return;
+        }
+        Map<Long, Car> cars = new HashMap<>();
+        for (Car car : carStore.findByIdIn(carIds)) {
+            cars.put(car.getId(), car);
+        }
+        lock.writeLock().lock();
+        try {
+            for (Long carId : carIds) {
+                Car car = cars.get(carId);
+                if (car != null) {
+                    upsert(car);
+                } else {
+                    remove(carId);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Объединённый поиск с той же семантикой, что и {@link CarService#search}: результат —
+     * объединение совпадений по каждому заданному критерию, а при пустом объединении —
+     * все автомобили.
+     *
+     * @param brand       марка (может быть null)
+     * @param startDate   дата начала диапазона (может быть null)
+     * @param endDate     дата окончания диапазона (может быть null)
+     * @param releaseYear год выпуска (может быть null)
+     * @param ownerName   имя владельца (может быть null)
+     * @return найденные автомобили
+     */
+    public List<Car> search(String brand, LocalDate startDate, LocalDate endDate, Integer releaseYear, String ownerName) {
+        Predicate<BrandEntry> brandMatch = brand != null && !brand.isEmpty() ? brandPredicate(brand) : null;
+        Predicate<OwnerEntry> ownerMatch = ownerName != null && !ownerName.isEmpty() ? ownerPredicate(ownerName) : null;
+
+        long started = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            long[] bitmap = new long[(size + 63) >>> 6];
+            if (brandMatch != null) {
+                scanCodes(brands, brandDictionary.mask(brandMatch), bitmap);
+            }
+            if (startDate != null && endDate != null) {
+                scanRange(regDays, (int) startDate.toEpochDay(), (int) endDate.toEpochDay(), bitmap);
+            }
+            if (releaseYear != null) {
+                scanYear(releaseYear, bitmap);
+            }
+            if (ownerMatch != null) {
+                scanCodes(owners, ownerDictionary.mask(ownerMatch), bitmap);
+            }
+            List<Car> cars = materialize(bitmap);
+            if (cars.isEmpty()) {
+                cars = materialize(null); // Как и в базе: без совпадений возвращаются все автомобили
+            }
+            return cars;
+        } finally {
+            lock.readLock().unlock();
+            filterTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Подсчитывает автомобили по дням регистрации в диапазоне дат.
+     *
+     * @param startDate первая дата включительно
+     * @param endDate   последняя дата включительно
+     * @return количество автомобилей по датам (только дни с регистрациями)
+     */
+    public Map<LocalDate, Long> countByRegDate(LocalDate startDate, LocalDate endDate) {
+        int from = (int) startDate.toEpochDay();
+        int to = (int) endDate.toEpochDay();
+        long[] counts = new long[Math.max(0, to - from + 1)];
+
+        long started = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            int[] days = regDays;
+            for (int row = 0; row < size; row++) {
+                int day = days[row];
+                if (day >= from && day <= to) {
+                    counts[day - from]++;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+            filterTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+
+        Map<LocalDate, Long> result = new HashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                result.put(LocalDate.ofEpochDay(from + i), counts[i]);
+            }
+        }
+        return result;
+    }
+
+    public int getRowCount() {
+        return size;
+    }
+
+    /**
+     * Оценка памяти на строку: столбцы плюс запись индекса по идентификатору.
+     *
+     * @return байт на строку
+     */
+    public int getBytesPerRow() {
+        return COLUMN_BYTES_PER_ROW + 64; // Элемент HashMap с упакованными Long и Integer
+    }
+
+    /**
+     * Оценка общего объёма копии, включая резерв массивов и словари.
+     *
+     * @return байт
+     */
+    public long getEstimatedBytes() {
+        lock.readLock().lock();
+        try {
+            long columns = (long) ids.length * COLUMN_BYTES_PER_ROW;
+            long index = (long) rowById.size() * 64;
+            long dictionaries = (brandDictionary.size() + ownerDictionary.size()) * 96L;
+            return columns + index + dictionaries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Timer getFilterTimer() {
+        return filterTimer;
+    }
+
+    /**
+     * Марка совпадает так же, как в {@link CarService#findByBrand}: по идентификатору каталога,
+     * а для марок вне каталога — по названию без учёта регистра.
+     */
+    private Predicate<BrandEntry> brandPredicate(String brand) {
+        Long brandId = carCatalog.resolveBrandId(brand);
+        if (brandId != null) {
+            return entry -> brandId.equals(entry.brandId());
+        }
+        return entry -> brand.equalsIgnoreCase(entry.brand());
+    }
+
+    /**
+     * Владелец совпадает так же, как в {@link CarService#findByOwnerName}: по записи справочника,
+     * а если её нет — по точному совпадению имени.
+     */
+    private Predicate<OwnerEntry> ownerPredicate(String ownerName) {
+        Optional<Owner> owner = ownerDirectory.find(ownerName);
+        if (owner.isPresent()) {
+            Long ownerId = owner.get().getId();
+            return entry -> ownerId.equals(entry.ownerId());
+        }
+        return entry -> ownerName.equals(entry.ownerName());
+    }
+
+    private void scanCodes(int[] column, boolean[] mask, long[] bitmap) {
+        if (mask.length == 0) {
+            return;
+        }
+        for (int row = 0; row < size; row++) {
+            int code = column[row];
+            if (code >= 0 && mask[code]) {
+                bitmap[row >>> 6] |= 1L << row;
+            }
+        }
+    }
+
+    private void scanRange(int[] column, int from, int to, long[] bitmap) {
+        for (int row = 0; row < size; row++) {
+            int value = column[row];
+            if (value >= from && value <= to) {
+                bitmap[row >>> 6] |= 1L << row;
+            }
+        }
+    }
+
+    private void scanYear(int releaseYear, long[] bitmap) {
+        if (releaseYear < Short.MIN_VALUE + 1 || releaseYear > Short.MAX_VALUE) {
+            return;
+        }
+        short year = (short) releaseYear;
+        short[] column = years;
+        for (int row = 0; row < size; row++) {
+            if (column[row] == year) {
+                bitmap[row >>> 6] |= 1L << row;
+            }
+        }
+    }
+
+    /**
+     * Собирает автомобили по битовой карте строк (null — все строки). Вызывается под блокировкой чтения.
+     */
+    private List<Car> materialize(long[] bitmap) {
+        List<Car> cars = new ArrayList<>();
+        if (bitmap == null) {
+            for (int row = 0; row < size; row++) {
+                cars.add(toCar(row));
+            }
+            return cars;
+        }
+        for (int word = 0; word < bitmap.length; word++) {
+            long bits = bitmap[word];
+            while (bits != 0) {
+                int row = (word << 6) + Long.numberOfTrailingZeros(bits);
+                cars.add(toCar(row));
+                bits &= bits - 1;
+            }
+        }
+        return cars;
+    }
+
+    private Car toCar(int row) {
+        Car car = new Car();
+        car.setId(ids[row]);
+        car.setReleaseYear(years[row] != NO_YEAR ? (int) years[row] : null);
+        car.setRegDate(regDays[row] != NO_DATE ? LocalDate.ofEpochDay(regDays[row]) : null);
+        BrandEntry brand = brandDictionary.value(brands[row]);
+        if (brand != null) {
+            car.setBrand(brand.brand());
+            car.setBrandId(brand.brandId());
+        }
+        OwnerEntry owner = ownerDictionary.value(owners[row]);
+        if (owner != null) {
+            car.setOwnerName(owner.ownerName());
+            car.setOwnerId(owner.ownerId());
+        }
+        car.setModelId(modelIds[row] != 0 ? modelIds[row] : null);
+        return car;
+    }
+
+    /**
+     * Добавляет или заменяет строку автомобиля. Вызывается под блокировкой записи.
+     */
+    private void upsert(Car car) {
+        if (car.getId() == null) {
+            return;
+        }
+        Integer row = rowById.get(car.getId());
+        if (row == null) {
+            grow(size + 1);
+            append(car);
+        } else {
+            write(row, car);
+        }
+    }
+
+    private void append(Car car) {
+        int row = size++;
+        rowById.put(car.getId(), row);
+        write(row, car);
+    }
+
+    private void write(int row, Car car) {
+        ids[row] = car.getId();
+        years[row] = car.getReleaseYear() != null ? car.getReleaseYear().shortValue() : NO_YEAR;
+        regDays[row] = car.getRegDate() != null ? (int) car.getRegDate().toEpochDay() : NO_DATE;
+        brands[row] = car.getBrand() != null ? brandDictionary.code(new BrandEntry(car.getBrand(), car.getBrandId())) : -1;
+        owners[row] = car.getOwnerName() != null
+                ? ownerDictionary.code(new OwnerEntry(car.getOwnerName(), car.getOwnerId())) : -1;
+        modelIds[row] = car.getModelId() != null ? car.getModelId() : 0;
+    }
+
+    /**
+     * Удаляет строку, перенося на её место последнюю. Вызывается под блокировкой записи.
+     */
+    private void remove(Long id) {
+        Integer row = rowById.remove(id);
+        if (row == null) {
+            return;
+        }
+        int last = --size;
+        if (row != last) {
+            ids[row] = ids[last];
+            years[row] = years[last];
+            regDays[row] = regDays[last];
+            brands[row] = brands[last];
+            owners[row] = owners[last];
+            modelIds[row] = modelIds[last];
+            rowById.put(ids[row], row);
+        }
+    }
+
+    private void grow(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, Math.max(16, ids.length + (ids.length >> 1)));
+        ids = Arrays.copyOf(ids, newCapacity);
+        years = Arrays.copyOf(years, newCapacity);
+        regDays = Arrays.copyOf(regDays, newCapacity);
+        brands = Arrays.copyOf(brands, newCapacity);
+        owners = Arrays.copyOf(owners, newCapacity);
+        modelIds = Arrays.copyOf(modelIds, newCapacity);
+    }
+
+    private record BrandEntry(String brand, Long brandId) {
+    }
+
+    private record OwnerEntry(String ownerName, Long ownerId) {
+    }
+
+    /**
+     * Словарь «значение -> плотный код». Коды не переиспользуются до полной перезагрузки.
+     */
+    private static final class Dictionary<T> {
+
+        private final Map<T, Integer> codes = new HashMap<>();
+        private final List<T> values = new ArrayList<>();
+
+        int code(T value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+
+        T value(int code) {
+            return code >= 0 ? values.get(code) : null;
+        }
+
+        /**
+         * Вычисляет маску кодов, значения которых удовлетворяют условию.
+         * Пустой массив означает, что совпадений нет.
+         */
+        boolean[] mask(Predicate<T> predicate) {
+            boolean[] mask = new boolean[values.size()];
+            boolean any = false;
+            for (int code = 0; code < mask.length; code++) {
+                if (predicate.test(values.get(code))) {
+                    mask[code] = true;
+                    any = true;
+                }
+            }
+            return any ? mask : new boolean[0];
+        }
+
+        int size() {
+            return values.size();
+        }
+
+        void clear() {
+            codes.clear();
+            values.clear();
+        }
+    }
+}
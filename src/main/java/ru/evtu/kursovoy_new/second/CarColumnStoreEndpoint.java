@@ -0,0 +1,49 @@
+package ru.evtu.kursovoy_new.second;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Actuator-эндпоинт /actuator/carcolumns: объём колоночной копии автомобилей и время фильтров.
+ */
+@Component
+@Endpoint(id = "carcolumns")
+public class CarColumnStoreEndpoint {
+
+    private final CarColumnStore carColumnStore;
+
+    public CarColumnStoreEndpoint(CarColumnStore carColumnStore) {
+        this.carColumnStore = carColumnStore;
+    }
+
+    @ReadOperation
+    public Map<String, Object> columns() {
+        Timer timer = carColumnStore.getFilterTimer();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("ready", carColumnStore.isReady());
+        result.put("rows", carColumnStore.getRowCount());
+        result.put("bytesPerRow", carColumnStore.getBytesPerRow());
+        result.put("estimatedBytes", carColumnStore.getEstimatedBytes());
+        result.put("filters", timer.count());
+        result.put("filterMeanMicros", timer.mean(TimeUnit.MICROSECONDS));
+        result.put("filterMaxMicros", timer.max(TimeUnit.MICROSECONDS));
+        for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+            result.put("filterP" + Math.round(percentile.percentile() * 100) + "Micros",
+                    percentile.value(TimeUnit.MICROSECONDS));
+        }
+        return result;
+    }
+
+    @WriteOperation
+    public void reload() {
+        carColumnStore.reload();
+    }
+}
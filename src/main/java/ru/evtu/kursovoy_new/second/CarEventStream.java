@@ -0,0 +1,253 @@
+package ru.evtu.kursovoy_new.second;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Поток событий об изменениях автомобилей для клиентов Server-Sent Events.
+ *
+ * Каждый подписчик получает собственный ограниченный буфер: если клиент не успевает
+ * читать и буфер переполняется, подписчик отключается (клиент переподключится
+ * с заголовком Last-Event-ID). Последние события хранятся в кольцевой истории,
+ * что позволяет продолжить поток с нужного идентификатора без потерь.
+ *
+ * Нумерация событий начинается с момента запуска (миллисекунды × 1000), поэтому идентификаторы
+ * после перезапуска больше прежних, а у разных экземпляров приложения не пересекаются на практике.
+ * Если Last-Event-ID не удаётся сопоставить с историей (он из прошлого запуска, с другого узла
+ * или уже вытеснен), клиент получает событие reset.
+ */
+@Component
+public class CarEventStream implements CarChangeListener {
+
+    private static final Logger log = LoggerFactory.getLogger(CarEventStream.class);
+
+    /** Маркер пульса в очереди подписчика; отправляется комментарием, а не событием. */
+    private static final CarEvent HEARTBEAT = new CarEvent(0, "heartbeat", null, null);
+
+    private final int bufferSize;
+    private final int historySize;
+    private final long timeoutMs;
+
+    private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis() * 1000);
+    private final Deque<CarEvent> history = new ArrayDeque<>(); // Последние события для возобновления
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService sender;
+
+    public CarEventStream(@Value("${cars.events.buffer-size:256}") int bufferSize,
+                          @Value("${cars.events.history-size:1000}") int historySize,
+                          @Value("${cars.events.timeout-ms:1800000}") long timeoutMs,
+                          @Value("${cars.events.sender-threads:2}") int senderThreads) {
+        this.bufferSize = bufferSize;
+        this.historySize = historySize;
+        this.timeoutMs = timeoutMs;
+        this.sender = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "car-events-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Регистрирует нового подписчика.
+     *
+     * @param brand       фильтр по марке (может быть null)
+     * @param releaseYear фильтр по году выпуска (может быть null)
+     * @param lastEventId идентификатор последнего полученного события (может быть null)
+     * @return SSE-эмиттер подписчика
+     */
+    public SseEmitter subscribe(String brand, Integer releaseYear, Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, brand, releaseYear, bufferSize);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+
+        synchronized (history) {
+            if (lastEventId != null) {
+                List<CarEvent> missed = new ArrayList<>();
+                for (CarEvent event : history) {
+                    if (event.id() > lastEventId && subscriber.matches(event)) {
+                        missed.add(event);
+                    }
+                }
+                CarEvent oldest = history.peekFirst();
+                long current = sequence.get();
+                boolean unknown = lastEventId > current // Идентификатор другого узла или прошлого запуска
+                        || (oldest != null ? oldest.id() > lastEventId + 1 : lastEventId < current);
+                if (unknown || missed.size() >= bufferSize) {
+                    // Нужные события уже вытеснены из истории, выданы не этим запуском или не помещаются
+                    // в буфер: клиент должен перечитать данные целиком
+                    subscriber.queue.offer(CarEvent.reset(sequence.get()));
+                } else {
+                    subscriber.queue.addAll(missed);
+                }
+            }
+            subscribers.add(subscriber);
+        }
+        schedule(subscriber);
+        return emitter;
+    }
+
+    @Override
+    public void onCarAdded(Car car) {
+        publish("add", null, car);
+    }
+
+    @Override
+    public void onCarUpdated(Car before, Car after) {
+        publish("update", before, after);
+    }
+
+    @Override
+    public void onCarDeleted(Car car) {
+        publish("delete", car, null);
+    }
+
+    /**
+     * Ставит комментарий-пульс в очереди простаивающих подписчиков, чтобы прокси не закрывали
+     * соединения. Отправка идёт через пул отправителей: медленный клиент не должен занимать
+     * общий поток планировщика, на котором работают и другие задачи приложения.
+     */
+    @Scheduled(fixedDelayString = "${cars.events.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            // Подписчику с непустой очередью пульс не нужен: события и так отправляются
+            if (subscriber.queue.isEmpty() && subscriber.queue.offer(HEARTBEAT)) {
+                schedule(subscriber);
+            }
+        }
+    }
+
+    /**
+     * Возвращает количество активных подписчиков.
+     *
+     * @return количество подписчиков
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        sender.shutdownNow();
+    }
+
+    private void publish(String type, Car before, Car after) {
+        List<Subscriber> toSchedule = new ArrayList<>();
+        synchronized (history) {
+            CarEvent event = new CarEvent(sequence.incrementAndGet(), type,
+                    before != null ? before.copy() : null, after != null ? after.copy() : null);
+            history.addLast(event);
+            while (history.size() > historySize) {
+                history.removeFirst();
+            }
+            for (Subscriber subscriber : subscribers) {
+                if (!subscriber.matches(event)) {
+                    continue;
+                }
+                if (subscriber.queue.offer(event)) {
+                    toSchedule.add(subscriber);
+                } else {
+                    evict(subscriber, "буфер переполнен");
+                }
+            }
+        }
+        toSchedule.forEach(this::schedule);
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (!subscriber.queue.isEmpty() && subscriber.draining.compareAndSet(false, true)) {
+            sender.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            CarEvent event;
+            while ((event = subscriber.queue.poll()) != null) {
+                if (event == HEARTBEAT) {
+                    subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                    continue;
+                }
+                subscriber.emitter.send(SseEmitter.event()
+                        .id(String.valueOf(event.id()))
+                        .name(event.type())
+                        .data(event));
+            }
+        } catch (IOException | IllegalStateException e) {
+            evict(subscriber, "ошибка отправки");
+            return;
+        } finally {
+            subscriber.draining.set(false);
+        }
+        schedule(subscriber); // События могли прийти, пока флаг ещё был установлен
+    }
+
+    private void evict(Subscriber subscriber, String reason) {
+        if (subscribers.remove(subscriber)) {
+            log.debug("Подписчик SSE отключён: {}", reason);
+            subscriber.queue.clear();
+            subscriber.emitter.complete();
+        }
+    }
+
+    /**
+     * Событие изменения автомобиля.
+     *
+     * @param id     монотонный идентификатор события
+     * @param type   тип события: add, update, delete или reset
+     * @param before состояние до изменения (null для add)
+     * @param after  состояние после изменения (null для delete)
+     */
+    public record CarEvent(long id, String type, Car before, Car after) {
+
+        static CarEvent reset(long id) {
+            return new CarEvent(id, "reset", null, null);
+        }
+    }
+
+    /**
+     * Подписчик с собственным ограниченным буфером и фильтром.
+     */
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final String brand;
+        private final Integer releaseYear;
+        private final BlockingQueue<CarEvent> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter, String brand, Integer releaseYear, int bufferSize) {
+            this.emitter = emitter;
+            this.brand = brand != null && !brand.isBlank() ? brand.trim() : null;
+            this.releaseYear = releaseYear;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        /**
+         * Событие обновления подходит, если фильтру удовлетворяет состояние до или после,
+         * чтобы клиент мог убрать строку, переставшую соответствовать фильтру.
+         */
+        private boolean matches(CarEvent event) {
+            return "reset".equals(event.type()) || matches(event.before()) || matches(event.after());
+        }
+
+        private boolean matches(Car car) {
+            return car != null
+                    && (brand == null || brand.equalsIgnoreCase(car.getBrand()))
+                    && (releaseYear == null || releaseYear.equals(car.getReleaseYear()));
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package ru.evtu.kursovoy_new.second;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Асинхронная запись истории изменений автомобилей.
+ *
+ * Слушатель только помещает событие в ограниченную очередь, поэтому запрос на запись
+ * автомобиля не ждёт журнала. Отдельный поток забирает события порциями и записывает
+ * каждую порцию одним многострочным INSERT (групповая фиксация). Если очередь переполнена,
+ * событие отбрасывается и учитывается в метрике cars.history.dropped.
+ */
+@Component
+public class CarHistoryRecorder implements CarChangeListener {
+
+    private static final Logger log = LoggerFactory.getLogger(CarHistoryRecorder.class);
+
+    private final CarHistoryRepository carHistoryRepository;
+    private final BlockingQueue<CarChange> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final Counter dropped;
+    private final Counter written;
+    private final Thread writer;
+
+    private volatile boolean running = true;
+
+    public CarHistoryRecorder(CarHistoryRepository carHistoryRepository,
+                              @Value("${cars.history.queue-size:10000}") int queueSize,
+                              @Value("${cars.history.batch-size:200}") int batchSize,
+                              @Value("${cars.history.flush-interval-ms:200}") long flushIntervalMs,
+                              MeterRegistry meterRegistry) {
+        this.carHistoryRepository = carHistoryRepository;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.dropped = Counter.builder("cars.history.dropped")
+                .description("События истории, отброшенные из-за переполнения очереди")
+                .register(meterRegistry);
+        this.written = Counter.builder("cars.history.written")
+                .description("Записанные события истории")
+                .register(meterRegistry);
+        meterRegistry.gauge("cars.history.queue", queue, BlockingQueue::size);
+        this.writer = new Thread(this::writeLoop, "car-history-writer");
+        this.writer.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        writer.start();
+    }
+
+    /**
+     * Останавливает поток записи, предварительно сбросив накопленные события.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    @Override
+    public void onCarAdded(Car car) {
+        enqueue(car.getId(), "add", null, car);
+    }
+
+    @Override
+    public void onCarUpdated(Car before, Car after) {
+        enqueue(after.getId(), "update", before, after);
+    }
+
+    @Override
+    public void onCarDeleted(Car car) {
+        enqueue(car.getId(), "delete", car, null);
+    }
+
+    private void enqueue(Long carId, String type, Car before, Car after) {
+        if (carId == null) {
+            return;
+        }
+        // Разница вычисляется сразу: объекты автомобиля могут измениться после возврата из слушателя
+        CarChange change = new CarChange(0, carId, type, Instant.now(), CarChange.diff(before, after));
+        if (!queue.offer(change)) {
+            dropped.increment();
+            log.warn("Очередь истории изменений переполнена, событие {} автомобиля {} отброшено", type, carId);
+        }
+    }
+
+    private void writeLoop() {
+        List<CarChange> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                CarChange first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+            } catch (InterruptedException e) {
+                queue.drainTo(batch, batchSize); // Завершение работы: сбрасываем то, что осталось
+            }
+            flush(batch);
+        }
+    }
+
+    private void flush(List<CarChange> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            carHistoryRepository.insertBatch(batch);
+            written.increment(batch.size());
+        } catch (RuntimeException e) {
+            dropped.increment(batch.size());
+            log.warn("Не удалось записать {} событий истории изменений", batch.size(), e);
+        }
+        batch.clear();
+    }
+}
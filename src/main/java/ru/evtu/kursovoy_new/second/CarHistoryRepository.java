@@ -0,0 +1,106 @@
+package ru.evtu.kursovoy_new.second;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Репозиторий журнала изменений car_history.
+ *
+ * Таблица только дополняется: записи не изменяются и не удаляются. Изменённые поля
+ * хранятся одним JSON-массивом, а индекс (car_id, id) позволяет читать историю
+ * автомобиля постранично в порядке записи.
+ */
+@Repository
+public class CarHistoryRepository {
+
+    private static final TypeReference<List<CarChange.FieldChange>> CHANGES_TYPE = new TypeReference<>() {
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public CarHistoryRepository(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Создаёт таблицу журнала, если её ещё нет.
+     */
+    @PostConstruct
+    public void createTableIfMissing() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS car_history ("
+                + "id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "car_id BIGINT NOT NULL, "
+                + "event_type VARCHAR(16) NOT NULL, "
+                + "changed_at TIMESTAMP(3) NOT NULL, "
+                + "changes TEXT NOT NULL, "
+                + "INDEX idx_car_history_car (car_id, id))");
+    }
+
+    /**
+     * Записывает порцию событий одним многострочным INSERT.
+     *
+     * @param changes события в порядке возникновения
+     */
+    public void insertBatch(List<CarChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        String rows = String.join(", ", Collections.nCopies(changes.size(), "(?, ?, ?, ?)"));
+        List<Object> args = new ArrayList<>(changes.size() * 4);
+        for (CarChange change : changes) {
+            args.add(change.carId());
+            args.add(change.type());
+            args.add(Timestamp.from(change.changedAt()));
+            args.add(toJson(change.changes()));
+        }
+        jdbcTemplate.update("INSERT INTO car_history (car_id, event_type, changed_at, changes) VALUES " + rows,
+                args.toArray());
+    }
+
+    /**
+     * Возвращает страницу истории автомобиля, начиная с последних изменений.
+     *
+     * @param carId идентификатор автомобиля
+     * @param page  номер страницы, начиная с 0
+     * @param size  размер страницы
+     * @return записи истории
+     */
+    public List<CarChange> findByCarId(long carId, int page, int size) {
+        return jdbcTemplate.query("SELECT id, car_id, event_type, changed_at, changes FROM car_history "
+                        + "WHERE car_id = ? ORDER BY id DESC LIMIT ? OFFSET ?",
+                (rs, rowNum) -> new CarChange(
+                        rs.getLong("id"),
+                        rs.getLong("car_id"),
+                        rs.getString("event_type"),
+                        rs.getTimestamp("changed_at").toInstant(),
+                        fromJson(rs.getString("changes"))),
+                carId, size, (long) page * size);
+    }
+
+    private String toJson(List<CarChange.FieldChange> changes) {
+        try {
+            return objectMapper.writeValueAsString(changes);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать изменения", e);
+        }
+    }
+
+    private List<CarChange.FieldChange> fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, CHANGES_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Повреждённая запись истории: " + json, e);
+        }
+    }
+}
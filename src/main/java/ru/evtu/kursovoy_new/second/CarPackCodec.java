@@ -0,0 +1,423 @@
+package ru.evtu.kursovoy_new.second;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Компактный двоичный формат списков автомобилей, моделей и марок (application/x-car-pack).
+ *
+ * Поток: заголовок "CPK" и номер версии, байт вида записей (автомобили, модели, марки),
+ * затем записи, каждая из которых начинается байтом 1, а поток завершается байтом 0.
+ * Запись содержит битовую маску заполненных полей и сами поля без имён. Числа записываются
+ * переменной длиной (zigzag для знаковых), идентификаторы — разностью с предыдущим,
+ * даты — номером дня от 1970-01-01. Повторяющиеся строки (марки, классы, страны) заменяются
+ * номером в словаре, который кодировщик и декодер строят одинаково по ходу потока.
+ *
+ * Записи кодируются по одной, поэтому ответ отправляется по мере формирования,
+ * а не собирается целиком в памяти.
+ */
+public final class CarPackCodec {
+
+    public static final String MEDIA_TYPE = "application/x-car-pack";
+
+    private static final byte[] MAGIC = {'C', 'P', 'K', 1};
+
+    private static final int KIND_EMPTY = 0;
+    private static final int KIND_CAR = 1;
+    private static final int KIND_MODEL = 2;
+    private static final int KIND_BRAND = 3;
+
+    private static final int RECORD = 1;
+    private static final int END = 0;
+
+    /** Наибольший размер словаря: дальше строки записываются без словаря. */
+    private static final int MAX_DICTIONARY = 4096;
+
+    /** Наибольшая длина строки, которую примет декодер. */
+    private static final int MAX_STRING_BYTES = 1 << 16;
+
+    private CarPackCodec() {
+    }
+
+    /**
+     * Проверяет, может ли формат передавать элементы данного типа.
+     *
+     * @param elementType тип элементов списка
+     * @return true для автомобилей, моделей и марок
+     */
+    public static boolean supports(Class<?> elementType) {
+        return Car.class.isAssignableFrom(elementType)
+                || CarModel.class.isAssignableFrom(elementType)
+                || CarBrand.class.isAssignableFrom(elementType);
+    }
+
+    /**
+     * Записывает элементы в поток. Поток не закрывается.
+     *
+     * @param items автомобили, модели или марки (все одного вида)
+     * @param out   поток для записи
+     * @throws IllegalArgumentException если элементы разного вида или не поддерживаются
+     */
+    public static void write(Collection<?> items, OutputStream out) throws IOException {
+        Encoder encoder = new Encoder(new BufferedOutputStream(out, 8192));
+        int kind = items.isEmpty() ? KIND_EMPTY : kindOf(items.iterator().next());
+        encoder.out.write(MAGIC);
+        encoder.out.write(kind);
+        for (Object item : items) {
+            if (kindOf(item) != kind) {
+                throw new IllegalArgumentException("Список содержит элементы разного вида");
+            }
+            encoder.out.write(RECORD);
+            switch (kind) {
+                case KIND_CAR -> encoder.writeCar((Car) item);
+                case KIND_MODEL -> encoder.writeModel((CarModel) item);
+                default -> encoder.writeBrand((CarBrand) item);
+            }
+        }
+        encoder.out.write(END);
+        encoder.out.flush();
+    }
+
+    /**
+     * Читает элементы из потока.
+     *
+     * @param in          поток для чтения
+     * @param elementType ожидаемый тип элементов (null — любой из поддерживаемых)
+     * @return прочитанные элементы
+     * @throws IOException если поток повреждён или содержит элементы другого типа
+     */
+    public static List<Object> read(InputStream in, Class<?> elementType) throws IOException {
+        Decoder decoder = new Decoder(new BufferedInputStream(in, 8192));
+        byte[] magic = decoder.in.readNBytes(MAGIC.length);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Неизвестный формат или версия потока");
+        }
+        int kind = decoder.readByte();
+        if (kind != KIND_EMPTY && kind != KIND_CAR && kind != KIND_MODEL && kind != KIND_BRAND) {
+            throw new IOException("Неизвестный вид записей: " + kind);
+        }
+        if (kind != KIND_EMPTY && elementType != null && elementType != Object.class
+                && !elementType.isAssignableFrom(classOf(kind))) {
+            throw new IOException("Поток содержит " + classOf(kind).getSimpleName()
+                    + ", ожидалось " + elementType.getSimpleName());
+        }
+
+        List<Object> items = new ArrayList<>();
+        for (int tag = decoder.readByte(); tag != END; tag = decoder.readByte()) {
+            if (tag != RECORD || kind == KIND_EMPTY) {
+                throw new IOException("Некорректная запись в потоке");
+            }
+            items.add(switch (kind) {
+                case KIND_CAR -> decoder.readCar();
+                case KIND_MODEL -> decoder.readModel();
+                default -> decoder.readBrand();
+            });
+        }
+        return items;
+    }
+
+    private static int kindOf(Object item) {
+        if (item instanceof Car) {
+            return KIND_CAR;
+        }
+        if (item instanceof CarModel) {
+            return KIND_MODEL;
+        }
+        if (item instanceof CarBrand) {
+            return KIND_BRAND;
+        }
+        throw new IllegalArgumentException("Формат не поддерживает элементы "
+                + (item == null ? "null" : item.getClass().getSimpleName()));
+    }
+
+    private static Class<?> classOf(int kind) {
+        return switch (kind) {
+            case KIND_CAR -> Car.class;
+            case KIND_MODEL -> CarModel.class;
+            default -> CarBrand.class;
+        };
+    }
+
+    private static final class Encoder {
+
+        private final OutputStream out;
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private long previousId;
+
+        private Encoder(OutputStream out) {
+            this.out = out;
+        }
+
+        private void writeCar(Car car) throws IOException {
+            writeVarLong(mask(car.getId(), car.getBrand(), car.getReleaseYear(), car.getRegDate(),
+                    car.getOwnerName(), car.getOwnerId(), car.getBrandId(), car.getModelId()));
+            writeId(car.getId());
+            writeDictionaryString(car.getBrand());
+            writeSigned(car.getReleaseYear());
+            if (car.getRegDate() != null) {
+                writeVarLong(zigzag(car.getRegDate().toEpochDay()));
+            }
+            writeString(car.getOwnerName());
+            writeSigned(car.getOwnerId());
+            writeSigned(car.getBrandId());
+            writeSigned(car.getModelId());
+        }
+
+        private void writeModel(CarModel model) throws IOException {
+            CarBrand brand = model.getCarBrand();
+            Long brandId = brand != null ? brand.getId() : null;
+            String brandCode = brand != null ? brand.getBrandCode() : null;
+            writeVarLong(mask(model.getId(), model.getModelCode(), model.getModelName(), model.getModelCyrillic(),
+                    model.getCarClass(), model.getYearFrom(), model.getYearTo(), brandId, brandCode));
+            writeId(model.getId());
+            writeString(model.getModelCode());
+            writeString(model.getModelName());
+            writeString(model.getModelCyrillic());
+            writeDictionaryString(model.getCarClass());
+            writeSigned(model.getYearFrom());
+            writeSigned(model.getYearTo());
+            writeSigned(brandId);
+            writeDictionaryString(brandCode);
+        }
+
+        private void writeBrand(CarBrand brand) throws IOException {
+            writeVarLong(mask(brand.getId(), brand.getBrandCode(), brand.getBrandName(), brand.getBrandCyrillic(),
+                    brand.getPopularBrand(), brand.getCountry()));
+            writeId(brand.getId());
+            writeDictionaryString(brand.getBrandCode());
+            writeString(brand.getBrandName());
+            writeString(brand.getBrandCyrillic());
+            writeSigned(brand.getPopularBrand());
+            writeDictionaryString(brand.getCountry());
+        }
+
+        private void writeId(Long id) throws IOException {
+            if (id != null) {
+                writeVarLong(zigzag(id - previousId));
+                previousId = id;
+            }
+        }
+
+        private void writeSigned(Number value) throws IOException {
+            if (value != null) {
+                writeVarLong(zigzag(value.longValue()));
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value != null) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                writeVarLong(bytes.length);
+                out.write(bytes);
+            }
+        }
+
+        /**
+         * 0 и строка — новая строка (добавляется в словарь, если в нём есть место),
+         * n > 0 — строка словаря с номером n - 1.
+         */
+        private void writeDictionaryString(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            Integer index = dictionary.get(value);
+            if (index != null) {
+                writeVarLong(index + 1);
+                return;
+            }
+            if (dictionary.size() < MAX_DICTIONARY) {
+                dictionary.put(value, dictionary.size());
+            }
+            writeVarLong(0);
+            writeString(value);
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+
+        private static long mask(Object... fields) {
+            long mask = 0;
+            for (int i = 0; i < fields.length; i++) {
+                if (fields[i] != null) {
+                    mask |= 1L << i;
+                }
+            }
+            return mask;
+        }
+
+        private static long zigzag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+    }
+
+    private static final class Decoder {
+
+        private final InputStream in;
+        private final List<String> dictionary = new ArrayList<>();
+        private long previousId;
+
+        private Decoder(InputStream in) {
+            this.in = in;
+        }
+
+        private Car readCar() throws IOException {
+            long mask = readVarLong();
+            Car car = new Car();
+            if (has(mask, 0)) {
+                car.setId(readId());
+            }
+            if (has(mask, 1)) {
+                car.setBrand(readDictionaryString());
+            }
+            if (has(mask, 2)) {
+                car.setReleaseYear((int) readSigned());
+            }
+            if (has(mask, 3)) {
+                car.setRegDate(LocalDate.ofEpochDay(readSigned()));
+            }
+            if (has(mask, 4)) {
+                car.setOwnerName(readString());
+            }
+            if (has(mask, 5)) {
+                car.setOwnerId(readSigned());
+            }
+            if (has(mask, 6)) {
+                car.setBrandId(readSigned());
+            }
+            if (has(mask, 7)) {
+                car.setModelId(readSigned());
+            }
+            return car;
+        }
+
+        private CarModel readModel() throws IOException {
+            long mask = readVarLong();
+            CarModel model = new CarModel();
+            if (has(mask, 0)) {
+                model.setId(readId());
+            }
+            if (has(mask, 1)) {
+                model.setModelCode(readString());
+            }
+            if (has(mask, 2)) {
+                model.setModelName(readString());
+            }
+            if (has(mask, 3)) {
+                model.setModelCyrillic(readString());
+            }
+            if (has(mask, 4)) {
+                model.setCarClass(readDictionaryString());
+            }
+            if (has(mask, 5)) {
+                model.setYearFrom((int) readSigned());
+            }
+            if (has(mask, 6)) {
+                model.setYearTo((int) readSigned());
+            }
+            if (has(mask, 7) || has(mask, 8)) {
+                // Марка передаётся ссылкой: идентификатор и код
+                CarBrand brand = new CarBrand();
+                if (has(mask, 7)) {
+                    brand.setId(readSigned());
+                }
+                if (has(mask, 8)) {
+                    brand.setBrandCode(readDictionaryString());
+                }
+                model.setCarBrand(brand);
+            }
+            return model;
+        }
+
+        private CarBrand readBrand() throws IOException {
+            long mask = readVarLong();
+            CarBrand brand = new CarBrand();
+            if (has(mask, 0)) {
+                brand.setId(readId());
+            }
+            if (has(mask, 1)) {
+                brand.setBrandCode(readDictionaryString());
+            }
+            if (has(mask, 2)) {
+                brand.setBrandName(readString());
+            }
+            if (has(mask, 3)) {
+                brand.setBrandCyrillic(readString());
+            }
+            if (has(mask, 4)) {
+                brand.setPopularBrand((int) readSigned());
+            }
+            if (has(mask, 5)) {
+                brand.setCountry(readDictionaryString());
+            }
+            return brand;
+        }
+
+        private long readId() throws IOException {
+            previousId += readSigned();
+            return previousId;
+        }
+
+        private long readSigned() throws IOException {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private String readString() throws IOException {
+            long length = readVarLong();
+            if (length > MAX_STRING_BYTES) {
+                throw new IOException("Слишком длинная строка: " + length + " байт");
+            }
+            byte[] bytes = in.readNBytes((int) length);
+            if (bytes.length != length) {
+                throw new EOFException();
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private String readDictionaryString() throws IOException {
+            long reference = readVarLong();
+            if (reference == 0) {
+                String value = readString();
+                if (dictionary.size() < MAX_DICTIONARY) {
+                    dictionary.add(value);
+                }
+                return value;
+            }
+            if (reference > dictionary.size()) {
+                throw new IOException("Ссылка на отсутствующую строку словаря: " + reference);
+            }
+            return dictionary.get((int) reference - 1);
+        }
+
+        private long readVarLong() throws IOException {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IOException("Некорректное число в потоке");
+        }
+
+        private int readByte() throws IOException {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            return b;
+        }
+
+        private static boolean has(long mask, int field) {
+            return (mask & (1L << field)) != 0;
+        }
+    }
+}
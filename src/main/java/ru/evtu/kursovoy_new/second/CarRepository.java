@@ -1,8 +1,10 @@
 package ru.evtu.kursovoy_new.second;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 public interface CarRepository extends JpaRepository<Car, Long> {
@@ -11,6 +13,11 @@ public interface CarRepository extends JpaRepository<Car, Long> {
     List<Car> findByBrandIgnoreCase(String brand);
     List<Car> findByReleaseYearEquals(Integer releaseDate);
     List<Car> findByOwnerNameEquals(String ownerName);
+    List<Car> findByOwnerId(Long ownerId);
+    List<Car> findByBrandIdIn(Collection<Long> brandIds);
+    List<Car> findByBrandIdIsNullAndBrandContainingIgnoreCase(String title);
+
+    List<Car> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
 }
 
 
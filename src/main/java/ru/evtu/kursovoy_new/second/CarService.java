@@ -1,6 +1,9 @@
 package ru.evtu.kursovoy_new.second;
 
 import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import ru.evtu.kursovoy_new.telegram.TelegramBotService;
@@ -9,7 +12,12 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.function.Consumer;
 
 /**
  * Сервис для управления автомобилями.
@@ -17,18 +25,47 @@ import java.util.Map;
  * Этот класс предоставляет методы для выполнения операций над автомобилями,
  * таких как поиск, добавление, обновление и удаление. Он также отправляет
  * уведомления через Telegram о изменениях в моделях автомобилей.
+ * Одновременные одинаковые чтения объединяются через {@link SingleFlight}.
  */
 @Service
 public class CarService {
 
+    private static final Logger log = LoggerFactory.getLogger(CarService.class);
+
+    // Поля, об изменении которых сообщается в уведомлении, и их названия
+    private static final Map<String, String> FIELD_LABELS = Map.of(
+            "ownerName", "владелец",
+            "brand", "марка",
+            "releaseYear", "год выпуска",
+            "regDate", "дата регистрации");
+
     private final TelegramBotService telegramBotService;
 
+    // Слушатели изменений (агрегаты в памяти и т.п.); получаются лениво, так как часть из них сама зависит от сервиса
+    private final ObjectProvider<CarChangeListener> changeListeners;
+
+    @Autowired
+    private CarStore carStore; // Хранилище автомобилей (одна база с архивом или шарды)
+
+    @Autowired
+    private OwnerDirectory ownerDirectory; // Справочник владельцев
+
+    @Autowired
+    private CarCatalog carCatalog; // Словарь марок и моделей каталога
+
+    @Autowired
+    private SingleFlight singleFlight; // Объединение одновременных одинаковых чтений
+
+    @Autowired
+    private CarColumnStore carColumnStore; // Колоночная копия автомобилей в памяти (если включена)
+
     @Autowired
-    private CarRepository CarRepository;
+    private CarChangeLog carChangeLog; // Журнал версий; пишется в одной транзакции с изменением
 
     // Конструктор для внедрения зависимости
-    public CarService(TelegramBotService telegramBotService) {
+    public CarService(TelegramBotService telegramBotService, ObjectProvider<CarChangeListener> changeListeners) {
         this.telegramBotService = telegramBotService;
+        this.changeListeners = changeListeners;
     }
 
     /**
@@ -37,7 +74,29 @@ public class CarService {
      * @return список всех автомобилей.
      */
     public List<Car> findAll() {
-        return CarRepository.findAll(); // Возвращаем все автомобили без дополнительных проверок
+        return singleFlight.execute("findAll", carStore::findAll); // Возвращаем все автомобили без дополнительных проверок
+    }
+
+    /**
+     * Получает страницу автомобилей, упорядоченных по идентификатору.
+     *
+     * @param page номер страницы, начиная с 0
+     * @param size размер страницы
+     * @return автомобили запрошенной страницы
+     */
+    public List<Car> findPage(int page, int size) {
+        return singleFlight.execute("findPage|" + page + "|" + size, () -> carStore.findPage(page, size));
+    }
+
+    /**
+     * Получает страницу автомобилей по курсору: автомобили с идентификатором больше afterId.
+     *
+     * @param afterId идентификатор последнего автомобиля предыдущей страницы (0 — с начала)
+     * @param size    размер страницы
+     * @return автомобили запрошенной страницы
+     */
+    public List<Car> findPageAfter(long afterId, int size) {
+        return singleFlight.execute("findPageAfter|" + afterId + "|" + size, () -> carStore.findPageAfter(afterId, size));
     }
 
     /**
@@ -47,7 +106,13 @@ public class CarService {
      * @return список автомобилей, соответствующих заданному названию.
      */
     public List<Car> findByTitle(String title) {
-        return CarRepository.findByBrandContainingIgnoreCase(title);
+        return singleFlight.execute("findByTitle|" + upper(title), () -> {
+            // Каталожные марки ищутся по целочисленным ключам, некаталожные — по строке
+            Set<Long> brandIds = carCatalog.findBrandIdsContaining(title);
+            List<Car> cars = new ArrayList<>(brandIds.isEmpty() ? List.of() : carStore.findByBrandIdIn(brandIds));
+            cars.addAll(carStore.findByBrandIdIsNullAndBrandContainingIgnoreCase(title));
+            return cars;
+        });
     }
 
     /**
@@ -58,7 +123,7 @@ public class CarService {
      * @return список автомобилей, зарегистрированных в указанный диапазон дат.
      */
     public List<Car> findByDateRange(LocalDate startDate, LocalDate endDate) {
-        return CarRepository.findByRegDateBetween(startDate, endDate);
+        return findByRegDateBetween(startDate, endDate);
     }
 
     /**
@@ -68,7 +133,10 @@ public class CarService {
      */
     public void addCar(Car car) {
         car.setRegDate(LocalDate.now()); // Установка текущей даты как даты регистрации
-        Car savedCar = CarRepository.save(car); // Сохранение автомобиля в базе данных
+        car.setOwnerId(ownerIdOf(car.getOwnerName())); // Связь с записью справочника владельцев
+        resolveCatalogIds(car, car.getModelCode());
+        Car savedCar = carChangeLog.saveLogged(() -> carStore.save(car)); // Сохранение автомобиля в базе данных
+        notifyListeners(listener -> listener.onCarAdded(savedCar));
 
         // Уведомление о добавлении
         telegramBotService.sendCarAdditionNotification(
@@ -87,7 +155,7 @@ public class CarService {
      * @throws RuntimeException если автомобиль не найден.
      */
     public Car findById(Long id) {
-        return CarRepository.findById(id)
+        return carStore.findById(id)
                 .orElseThrow(() -> new RuntimeException("Car not found"));
     }
 
@@ -99,33 +167,33 @@ public class CarService {
      * @throws EntityNotFoundException если автомобиль не найден.
      */
     public void updateCar(Long id, Car carDetails) {
-        Car existingCar = CarRepository.findById(id)
+        Car existingCar = carStore.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Машина не найдена с ID: " + id));
 
-        // Сохранение старых значений для проверки изменений
-        String oldOwnerName = existingCar.getOwnerName();
-        String oldBrand = existingCar.getBrand();
-        int oldYear = existingCar.getReleaseYear();
-        String oldRegDate = existingCar.getRegDate().toString(); // Преобразуем LocalDate в String
+        // Сохранение старого состояния для проверки изменений
+        Car before = existingCar.copy();
 
         // Обновление данных автомобиля
         existingCar.setBrand(carDetails.getBrand());
         existingCar.setReleaseYear(carDetails.getReleaseYear());
         existingCar.setRegDate(carDetails.getRegDate());
         existingCar.setOwnerName(carDetails.getOwnerName());
+        existingCar.setOwnerId(ownerIdOf(carDetails.getOwnerName()));
+        resolveCatalogIds(existingCar, carDetails.getModelCode());
 
         // Сохраняем обновлённые данные в базе
-        CarRepository.save(existingCar);
+        carChangeLog.saveLogged(() -> carStore.save(existingCar));
+        notifyListeners(listener -> listener.onCarUpdated(before, existingCar));
 
         // Проверяем, какие поля были изменены и отправляем уведомление, если есть изменения
-        String changedField = determineChangedField(oldOwnerName, oldBrand, oldYear, oldRegDate, existingCar);
-        if (!changedField.isEmpty()) {
+        String changedFields = describeChangedFields(before, existingCar);
+        if (!changedFields.isEmpty()) {
             telegramBotService.sendCarUpdateNotification(
                     existingCar.getBrand(),
                     existingCar.getReleaseYear(),
                     existingCar.getRegDate().toString(),
                     existingCar.getOwnerName(),
-                    changedField
+                    changedFields
             );
         }
     }
@@ -138,7 +206,7 @@ public class CarService {
      */
     public void deleteCarById(Long id) {
         // Проверяем, существует ли автомобиль
-        Car carToDelete = CarRepository.findById(id)
+        Car carToDelete = carStore.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Автомобиль с ID " + id + " не найден."));
 
         // Уведомляем через TelegramBotService об удалении
@@ -149,7 +217,8 @@ public class CarService {
         );
 
         // Удаляем автомобиль из базы данных
-        CarRepository.deleteById(id);
+        carChangeLog.deleteLogged(id, () -> carStore.deleteById(id));
+        notifyListeners(listener -> listener.onCarDeleted(carToDelete));
     }
 
     /**
@@ -160,7 +229,8 @@ public class CarService {
      * @return список автомобилей, зарегистрированных в указанный диапазон дат.
      */
     public List<Car> findByRegDateBetween(LocalDate startDate, LocalDate endDate) {
-        return CarRepository.findByRegDateBetween(startDate, endDate);
+        return singleFlight.execute("findByRegDateBetween|" + startDate + "|" + endDate,
+                () -> carStore.findByRegDateBetween(startDate, endDate));
     }
 
     /**
@@ -170,7 +240,13 @@ public class CarService {
      * @return список автомобилей, соответствующих заданной марке.
      */
     public List<Car> findByBrand(String brand) {
-        return CarRepository.findByBrandIgnoreCase(brand);
+        return singleFlight.execute("findByBrand|" + upper(brand), () -> {
+            Long brandId = carCatalog.resolveBrandId(brand);
+            if (brandId != null) {
+                return carStore.findByBrandIdIn(Set.of(brandId)); // Фильтр по целочисленному ключу
+            }
+            return carStore.findByBrandIgnoreCase(brand); // Марка вне каталога
+        });
     }
 
     /**
@@ -180,17 +256,31 @@ public class CarService {
      * @return список автомобилей, выпущенных в указанный год.
      */
     public List<Car> findByReleaseYear(Integer releaseYear) {
-        return CarRepository.findByReleaseYearEquals(releaseYear);
+        return singleFlight.execute("findByReleaseYear|" + releaseYear, () -> carStore.findByReleaseYearEquals(releaseYear));
     }
 
     /**
      * Находит автомобили по имени владельца.
+     * Имя сопоставляется со справочником владельцев без учёта регистра и лишних пробелов.
      *
      * @param ownerName имя владельца
      * @return список автомобилей, принадлежащих указанному владельцу.
      */
     public List<Car> findByOwnerName(String ownerName) {
-        return CarRepository.findByOwnerNameEquals(ownerName);
+        // Имя в ключе не нормализуется: без записи справочника поиск идёт по точному совпадению
+        return singleFlight.execute("findByOwnerName|" + ownerName, () -> ownerDirectory.find(ownerName)
+                .map(owner -> carStore.findByOwnerId(owner.getId()))
+                .orElseGet(() -> carStore.findByOwnerNameEquals(ownerName)));
+    }
+
+    /**
+     * Находит автомобили владельца по его идентификатору в справочнике.
+     *
+     * @param ownerId идентификатор владельца
+     * @return список автомобилей владельца.
+     */
+    public List<Car> findByOwnerId(Long ownerId) {
+        return singleFlight.execute("findByOwnerId|" + ownerId, () -> carStore.findByOwnerId(ownerId));
     }
 
     /**
@@ -204,6 +294,15 @@ public class CarService {
      * @return список уникальных автомобилей, соответствующих критериям поиска.
      */
     public List<Car> search(String brand, LocalDate startDate, LocalDate endDate, Integer releaseYear, String ownerName) {
+        String key = "search|" + upper(emptyToNull(brand)) + "|" + startDate + "|" + endDate + "|" + releaseYear
+                + "|" + emptyToNull(ownerName);
+        return singleFlight.execute(key, () -> doSearch(brand, startDate, endDate, releaseYear, ownerName));
+    }
+
+    private List<Car> doSearch(String brand, LocalDate startDate, LocalDate endDate, Integer releaseYear, String ownerName) {
+        if (carColumnStore.isReady()) {
+            return carColumnStore.search(brand, startDate, endDate, releaseYear, ownerName);
+        }
         List<Car> cars = new ArrayList<>();
 
         // Получаем результаты по каждому критерию поиска
@@ -224,7 +323,7 @@ public class CarService {
         List<Car> distinctCars = cars.stream().distinct().toList();
         // Если результатов нет, вернем все автомобили
         if (distinctCars.isEmpty()) {
-            return CarRepository.findAll(); // Возвращаем все автомобили
+            return carStore.findAll(); // Возвращаем все автомобили
         }
 
         return distinctCars; // Возвращаем уникальные результаты поиска
@@ -236,13 +335,21 @@ public class CarService {
      * @return карта, где ключ - дата регистрации, значение - количество автомобилей, зарегистрированных в эту дату.
      */
     public Map<LocalDate, Long> getRegCarsCountByDay() {
-        List<Car> allCars = CarRepository.findAll(); // Получаем все автомобили
+        // Читаем только последние 7 дней: архив при этом отсекается
+        LocalDate today = LocalDate.now();
+        return singleFlight.execute("regCarsCountByDay|" + today, () -> countRegCarsByDay(today));
+    }
+
+    private Map<LocalDate, Long> countRegCarsByDay(LocalDate today) {
+        if (carColumnStore.isReady()) {
+            return carColumnStore.countByRegDate(today.minusDays(6), today);
+        }
+        List<Car> lastWeekCars = carStore.findByRegDateBetween(today.minusDays(6), today);
         Map<LocalDate, Long> countMap = new HashMap<>();
 
-        for (Car car : allCars) {
+        for (Car car : lastWeekCars) {
             LocalDate regDate = car.getRegDate(); // Получаем дату регистрации
-            // Учитываем только за последние 7 дней
-            if (regDate != null && regDate.isAfter(LocalDate.now().minusDays(7))) {
+            if (regDate != null) {
                 countMap.put(regDate, countMap.getOrDefault(regDate, 0L) + 1);
             }
         }
@@ -251,27 +358,86 @@ public class CarService {
         return countMap;
     }
 
+    private static String upper(String value) {
+        return value != null ? value.toUpperCase(Locale.ROOT) : null;
+    }
+
+    private static String emptyToNull(String value) {
+        return value != null && !value.isEmpty() ? value : null;
+    }
+
+    /**
+     * Возвращает идентификатор владельца из справочника, создавая запись при необходимости.
+     *
+     * @param ownerName имя владельца (может быть null)
+     * @return идентификатор владельца или null для пустого имени
+     */
+    private Long ownerIdOf(String ownerName) {
+        Owner owner = ownerDirectory.resolve(ownerName);
+        return owner != null ? owner.getId() : null;
+    }
+
+    /**
+     * Определяет идентификаторы марки и модели по каталогу.
+     * Марка, отсутствующая в каталоге, сохраняется как есть с brandId = null и отмечается в журнале.
+     * Год выпуска проверяется по годам производства модели (или марки, если модель не указана).
+     * При смене марки без кода модели прежняя модель сбрасывается: она принадлежит другой марке.
+     *
+     * @param car       автомобиль, в котором заполняются brandId и modelId
+     * @param modelCode код модели из формы (может быть null)
+     * @throws IllegalArgumentException если год выпуска не соответствует каталогу
+     */
+    private void resolveCatalogIds(Car car, String modelCode) {
+        Long brandId = carCatalog.resolveBrandId(car.getBrand());
+        if (brandId == null) {
+            log.warn("Марка \"{}\" отсутствует в каталоге car_brands", car.getBrand());
+        }
+        boolean brandChanged = !Objects.equals(brandId, car.getBrandId());
+        car.setBrandId(brandId);
+        Long modelId = carCatalog.resolveModelId(brandId, modelCode);
+        if (modelId != null || modelCode != null || brandChanged) {
+            // Без кода модели сохраняем ранее выбранную модель, если она относится к той же марке
+            car.setModelId(modelId);
+        }
+        if (car.getReleaseYear() != null
+                && !carCatalog.isReleaseYearValid(car.getBrandId(), car.getModelId(), car.getReleaseYear())) {
+            throw new IllegalArgumentException("Год выпуска " + car.getReleaseYear()
+                    + " не соответствует годам производства модели по каталогу.");
+        }
+    }
+
+    /**
+     * Оповещает слушателей об изменении. Ошибка одного слушателя не прерывает
+     * операцию записи и не мешает остальным слушателям.
+     *
+     * @param action действие, выполняемое для каждого слушателя
+     */
+    private void notifyListeners(Consumer<CarChangeListener> action) {
+        for (CarChangeListener listener : changeListeners.orderedStream().toList()) {
+            try {
+                action.accept(listener);
+            } catch (RuntimeException e) {
+                log.warn("Слушатель {} завершился с ошибкой", listener.getClass().getSimpleName(), e);
+            }
+        }
+    }
+
     /**
      * Определяет, какие поля автомобиля были изменены.
      *
-     * @param oldOwnerName старое имя владельца
-     * @param oldBrand старое название марки
-     * @param oldYear старый год выпуска
-     * @param oldRegDate старая дата регистрации
+     * @param before      состояние автомобиля до изменения
      * @param existingCar текущий объект автомобиля с обновлёнными данными
-     * @return строка, указывающая, какие поля изменились (владелец, марка, год выпуска, дата регистрации)
+     * @return перечисление изменённых полей через запятую (владелец, марка, год выпуска, дата регистрации)
+     *         или пустая строка, если видимые поля не изменились
      */
-    private String determineChangedField(String oldOwnerName, String oldBrand, int oldYear, String oldRegDate, Car existingCar) {
-        String changedField = "";
-        if (!oldOwnerName.equals(existingCar.getOwnerName())) {
-            changedField = "владелец";
-        } else if (!oldBrand.equals(existingCar.getBrand())) {
-            changedField = "марка";
-        } else if (oldYear != existingCar.getReleaseYear()) {
-            changedField = "год выпуска";
-        } else if (!oldRegDate.equals(existingCar.getRegDate().toString())) {
-            changedField = "дата регистрации";
+    private String describeChangedFields(Car before, Car existingCar) {
+        StringJoiner changed = new StringJoiner(", ");
+        for (CarChange.FieldChange change : CarChange.diff(before, existingCar)) {
+            String label = FIELD_LABELS.get(change.field());
+            if (label != null) {
+                changed.add(label);
+            }
         }
-        return changedField;
+        return changed.toString();
     }
 }
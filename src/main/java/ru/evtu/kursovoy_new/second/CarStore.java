@@ -0,0 +1,117 @@
+package ru.evtu.kursovoy_new.second;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Хранилище автомобилей, используемое CarService.
+ *
+ * Реализация выбирается конфигурацией: {@link JpaCarStore} работает с одной базой
+ * (оперативная таблица и архив), {@link ShardedCarStore} распределяет автомобили
+ * по нескольким источникам данных и выполняет запросы параллельно на всех шардах.
+ */
+public interface CarStore {
+
+    List<Car> findAll();
+
+    Optional<Car> findById(Long id);
+
+    /**
+     * Находит автомобили по набору идентификаторов.
+     *
+     * @param ids идентификаторы автомобилей
+     * @return найденные автомобили (отсутствующие идентификаторы пропускаются)
+     */
+    List<Car> findByIdIn(Collection<Long> ids);
+
+    Car save(Car car);
+
+    void deleteById(Long id);
+
+    List<Car> findByRegDateBetween(LocalDate startDate, LocalDate endDate);
+
+    List<Car> findByBrandIgnoreCase(String brand);
+
+    List<Car> findByBrandContainingIgnoreCase(String title);
+
+    List<Car> findByReleaseYearEquals(Integer releaseYear);
+
+    List<Car> findByOwnerNameEquals(String ownerName);
+
+    List<Car> findByOwnerId(Long ownerId);
+
+    /**
+     * Находит автомобили по идентификаторам марок каталога.
+     *
+     * @param brandIds непустое множество идентификаторов марок
+     * @return автомобили указанных марок
+     */
+    List<Car> findByBrandIdIn(Collection<Long> brandIds);
+
+    /**
+     * Находит автомобили с маркой вне каталога (brand_id не задан) по фрагменту названия.
+     *
+     * @param title фрагмент названия марки
+     * @return автомобили с некаталожной маркой, содержащей фрагмент
+     */
+    List<Car> findByBrandIdIsNullAndBrandContainingIgnoreCase(String title);
+
+    /**
+     * Возвращает страницу автомобилей, упорядоченных по идентификатору.
+     *
+     * @param page номер страницы, начиная с 0
+     * @param size размер страницы
+     * @return автомобили страницы
+     */
+    List<Car> findPage(int page, int size);
+
+    /**
+     * Возвращает автомобили с идентификатором больше указанного, упорядоченные по идентификатору
+     * (постраничная выгрузка по курсору: каждая страница читает не больше size строк из каждой таблицы).
+     *
+     * @param afterId идентификатор последнего автомобиля предыдущей страницы (0 — с начала)
+     * @param size    размер страницы
+     * @return автомобили страницы
+     */
+    List<Car> findPageAfter(long afterId, int size);
+
+    /**
+     * Сливает списки, каждый из которых упорядочен по идентификатору, в один упорядоченный
+     * список и возвращает из него окно [offset, offset + limit).
+     *
+     * @param sortedParts упорядоченные по id части (например, результаты отдельных шардов)
+     * @param offset      количество пропускаемых элементов
+     * @param limit       максимальное количество возвращаемых элементов
+     * @return окно слитого списка
+     */
+    static List<Car> mergeById(List<List<Car>> sortedParts, long offset, int limit) {
+        PriorityQueue<ListIterator<Car>> heads = new PriorityQueue<>(
+                Comparator.comparing((ListIterator<Car> it) -> peek(it).getId()));
+        for (List<Car> part : sortedParts) {
+            if (!part.isEmpty()) {
+                heads.add(part.listIterator());
+            }
+        }
+        List<Car> result = new ArrayList<>(Math.min(limit, 1024));
+        long skipped = 0;
+        while (!heads.isEmpty() && result.size() < limit) {
+            ListIterator<Car> head = heads.poll();
+            Car car = head.next();
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                result.add(car);
+            }
+            if (head.hasNext()) {
+                heads.add(head);
+            }
+        }
+        return result;
+    }
+
+    private static Car peek(ListIterator<Car> iterator) {
+        Car car = iterator.next();
+        iterator.previous();
+        return car;
+    }
+}
@@ -0,0 +1,139 @@
+package ru.evtu.kursovoy_new.second;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Хранилище автомобилей в основной базе данных: запись через JPA,
+ * чтение с учётом архивной таблицы.
+ *
+ * Автомобиль, перенесённый в архив, остаётся в списках, поэтому поиск по идентификатору,
+ * изменение и удаление выполняются в той таблице, где он сейчас находится.
+ */
+@Component
+@ConditionalOnProperty(name = "cars.sharding.enabled", havingValue = "false", matchIfMissing = true)
+public class JpaCarStore implements CarStore {
+
+    private final CarRepository carRepository;
+    private final CarArchiveRepository carArchiveRepository;
+    private final PartitionedCarReader partitionedCarReader;
+
+    public JpaCarStore(CarRepository carRepository, CarArchiveRepository carArchiveRepository,
+                       PartitionedCarReader partitionedCarReader) {
+        this.carRepository = carRepository;
+        this.carArchiveRepository = carArchiveRepository;
+        this.partitionedCarReader = partitionedCarReader;
+    }
+
+    @Override
+    public List<Car> findAll() {
+        return partitionedCarReader.findAll();
+    }
+
+    @Override
+    public Optional<Car> findById(Long id) {
+        Optional<Car> car = carRepository.findById(id);
+        if (car.isEmpty() && carArchiveRepository.isEnabled()) {
+            return carArchiveRepository.findById(id);
+        }
+        return car;
+    }
+
+    @Override
+    public List<Car> findByIdIn(Collection<Long> ids) {
+        List<Car> cars = carRepository.findAllById(ids);
+        if (!carArchiveRepository.isEnabled() || cars.size() == ids.size()) {
+            return cars;
+        }
+        Set<Long> missing = new HashSet<>(ids);
+        cars.forEach(car -> missing.remove(car.getId()));
+        List<Car> result = new ArrayList<>(cars);
+        result.addAll(carArchiveRepository.findByIdIn(missing));
+        return result;
+    }
+
+    @Override
+    public Car save(Car car) {
+        // Архивный автомобиль обновляется в архиве (или возвращается в cars, если дата стала недавней):
+        // JPA-сохранение вставило бы новую строку в cars
+        if (car.getId() != null && carArchiveRepository.isEnabled() && !carRepository.existsById(car.getId())
+                && carArchiveRepository.update(car, partitionedCarReader.getArchiveBoundary())) {
+            return car;
+        }
+        return carRepository.save(car);
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        carRepository.deleteById(id);
+        if (carArchiveRepository.isEnabled()) {
+            carArchiveRepository.deleteById(id);
+        }
+    }
+
+    @Override
+    public List<Car> findByRegDateBetween(LocalDate startDate, LocalDate endDate) {
+        return partitionedCarReader.findByRegDateBetween(startDate, endDate);
+    }
+
+    @Override
+    public List<Car> findByBrandIgnoreCase(String brand) {
+        return partitionedCarReader.findByBrandIgnoreCase(brand);
+    }
+
+    @Override
+    public List<Car> findByBrandContainingIgnoreCase(String title) {
+        return partitionedCarReader.findByBrandContainingIgnoreCase(title);
+    }
+
+    @Override
+    public List<Car> findByReleaseYearEquals(Integer releaseYear) {
+        return partitionedCarReader.findByReleaseYearEquals(releaseYear);
+    }
+
+    @Override
+    public List<Car> findByOwnerNameEquals(String ownerName) {
+        return partitionedCarReader.findByOwnerNameEquals(ownerName);
+    }
+
+    @Override
+    public List<Car> findByOwnerId(Long ownerId) {
+        return partitionedCarReader.findByOwnerId(ownerId);
+    }
+
+    @Override
+    public List<Car> findByBrandIdIn(Collection<Long> brandIds) {
+        return partitionedCarReader.findByBrandIdIn(brandIds);
+    }
+
+    @Override
+    public List<Car> findByBrandIdIsNullAndBrandContainingIgnoreCase(String title) {
+        return partitionedCarReader.findByBrandIdIsNullAndBrandContainingIgnoreCase(title);
+    }
+
+    @Override
+    public List<Car> findPage(int page, int size) {
+        if (!partitionedCarReader.isArchiveEnabled()) {
+            return carRepository.findAll(PageRequest.of(page, size, Sort.by("id"))).getContent();
+        }
+        // Окно [0, offset + size) из каждой таблицы достаточно для точной страницы после слияния
+        long offset = (long) page * size;
+        int window = Math.toIntExact(offset + size);
+        List<Car> hot = carRepository.findAll(PageRequest.of(0, window, Sort.by("id"))).getContent();
+        return CarStore.mergeById(List.of(hot, carArchiveRepository.findFirstOrderById(window)), offset, size);
+    }
+
+    @Override
+    public List<Car> findPageAfter(long afterId, int size) {
+        List<Car> hot = carRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, size));
+        if (!partitionedCarReader.isArchiveEnabled()) {
+            return hot;
+        }
+        return CarStore.mergeById(List.of(hot, carArchiveRepository.findAfterIdOrderById(afterId, size)), 0, size);
+    }
+}
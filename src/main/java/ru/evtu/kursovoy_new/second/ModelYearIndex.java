@@ -0,0 +1,141 @@
+package ru.evtu.kursovoy_new.second;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Центрированное дерево интервалов по годам выпуска моделей одной марки.
+ *
+ * Каждый узел хранит точку центра и модели, интервал [yearFrom, yearTo] которых её содержит,
+ * в двух порядках: по началу и по концу. Запрос «какие модели выпускались в году X»
+ * спускается по одной ветви дерева и на каждом узле читает только подходящий префикс
+ * списка, поэтому выполняется за O(log n + k). Отсутствующая граница интервала
+ * означает открытый диапазон. Дерево неизменяемо и строится заново при перезагрузке каталога.
+ */
+public final class ModelYearIndex {
+
+    private final Node root;
+    private final int size;
+
+    public ModelYearIndex(List<CarModel> models) {
+        List<CarModel> valid = new ArrayList<>();
+        for (CarModel model : models) {
+            if (from(model) <= to(model)) {
+                valid.add(model); // Интервал с началом позже конца не содержит ни одного года
+            }
+        }
+        this.root = build(valid);
+        this.size = valid.size();
+    }
+
+    /**
+     * Находит модели, выпускавшиеся в указанном году.
+     *
+     * @param year год выпуска
+     * @return модели, интервал выпуска которых содержит год
+     */
+    public List<CarModel> findByYear(int year) {
+        List<CarModel> result = new ArrayList<>();
+        Node node = root;
+        while (node != null) {
+            if (year < node.center) {
+                for (CarModel model : node.byStart) {
+                    if (from(model) > year) {
+                        break;
+                    }
+                    result.add(model);
+                }
+                node = node.left;
+            } else if (year > node.center) {
+                for (CarModel model : node.byEnd) {
+                    if (to(model) < year) {
+                        break;
+                    }
+                    result.add(model);
+                }
+                node = node.right;
+            } else {
+                result.addAll(node.byStart);
+                break;
+            }
+        }
+        return result;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Проверяет, выпускалась ли модель в указанном году.
+     *
+     * @param model модель каталога
+     * @param year  год выпуска
+     * @return true, если год попадает в интервал выпуска модели
+     */
+    public static boolean contains(CarModel model, int year) {
+        return from(model) <= year && year <= to(model);
+    }
+
+    private static Node build(List<CarModel> models) {
+        if (models.isEmpty()) {
+            return null;
+        }
+        // Центр — медиана известных концов интервалов, чтобы дерево оставалось сбалансированным.
+        // Центр всегда совпадает с концом одного из интервалов, поэтому узел не бывает пустым.
+        List<Integer> endpoints = new ArrayList<>(models.size() * 2);
+        for (CarModel model : models) {
+            if (model.getYearFrom() != null) {
+                endpoints.add(model.getYearFrom());
+            }
+            if (model.getYearTo() != null) {
+                endpoints.add(model.getYearTo());
+            }
+        }
+        endpoints.sort(null);
+        int center = endpoints.isEmpty() ? 0 : endpoints.get(endpoints.size() / 2);
+
+        List<CarModel> left = new ArrayList<>();
+        List<CarModel> right = new ArrayList<>();
+        List<CarModel> overlapping = new ArrayList<>();
+        for (CarModel model : models) {
+            if (to(model) < center) {
+                left.add(model);
+            } else if (from(model) > center) {
+                right.add(model);
+            } else {
+                overlapping.add(model);
+            }
+        }
+        Node node = new Node(center);
+        node.byStart = new ArrayList<>(overlapping);
+        node.byStart.sort(Comparator.comparingInt(ModelYearIndex::from));
+        node.byEnd = new ArrayList<>(overlapping);
+        node.byEnd.sort(Comparator.comparingInt(ModelYearIndex::to).reversed());
+        node.left = build(left);
+        node.right = build(right);
+        return node;
+    }
+
+    private static int from(CarModel model) {
+        return model.getYearFrom() != null ? model.getYearFrom() : Integer.MIN_VALUE;
+    }
+
+    private static int to(CarModel model) {
+        return model.getYearTo() != null ? model.getYearTo() : Integer.MAX_VALUE;
+    }
+
+    private static final class Node {
+
+        private final int center;
+        private List<CarModel> byStart;
+        private List<CarModel> byEnd;
+        private Node left;
+        private Node right;
+
+        private Node(int center) {
+            this.center = center;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package ru.evtu.kursovoy_new.second;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Класс, представляющий сущность владельца автомобиля.
+ *
+ * Владелец хранится один раз и связывается с автомобилями по идентификатору.
+ * Для быстрого поиска по имени хранятся нормализованное имя и его хеш (индексируемый
+ * столбец), а также поддерживаемое количество автомобилей владельца.
+ */
+@Entity
+@Table(name = "owners")
+@Getter
+@Setter
+public class Owner {
+
+    /**
+     * Уникальный идентификатор владельца.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Имя владельца в том виде, в каком оно было впервые введено.
+     */
+    private String name; // name
+
+    /**
+     * Нормализованное имя: без лишних пробелов и в нижнем регистре.
+     */
+    private String normalizedName; // normalized_name
+
+    /**
+     * 64-битный хеш нормализованного имени; по нему построен индекс.
+     */
+    private Long nameHash; // name_hash
+
+    /**
+     * Количество автомобилей владельца.
+     */
+    private Integer carCount; // car_count
+}
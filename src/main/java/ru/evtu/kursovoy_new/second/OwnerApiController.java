@@ -0,0 +1,53 @@
+package ru.evtu.kursovoy_new.second;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Collections;
+
+/**
+ * REST-контроллер справочника владельцев.
+ * Предоставляет поиск владельца по имени и список автомобилей владельца.
+ */
+@RestController
+@RequestMapping("cars/api/owners")
+public class OwnerApiController {
+
+    private final OwnerDirectory ownerDirectory;
+    private final CarService carService;
+
+    public OwnerApiController(OwnerDirectory ownerDirectory, CarService carService) {
+        this.ownerDirectory = ownerDirectory;
+        this.carService = carService;
+    }
+
+    /**
+     * Находит владельца по имени (без учёта регистра и лишних пробелов).
+     *
+     * @param name имя владельца
+     * @return владелец с количеством автомобилей или 404
+     */
+    @GetMapping
+    public ResponseEntity<?> findOwner(@RequestParam String name) {
+        return ownerDirectory.find(name)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Collections.singletonMap("error", "Владелец не найден.")));
+    }
+
+    /**
+     * Возвращает автомобили владельца.
+     *
+     * @param id идентификатор владельца
+     * @return список автомобилей владельца или 404
+     */
+    @GetMapping("/{id}/cars")
+    public ResponseEntity<?> getOwnerCars(@PathVariable Long id) {
+        if (ownerDirectory.findById(id).isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Collections.singletonMap("error", "Владелец не найден."));
+        }
+        return ResponseEntity.ok(carService.findByOwnerId(id));
+    }
+}
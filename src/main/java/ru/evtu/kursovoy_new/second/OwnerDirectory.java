@@ -0,0 +1,132 @@
+package ru.evtu.kursovoy_new.second;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Справочник владельцев автомобилей.
+ *
+ * Сопоставляет введённое имя владельца с записью таблицы owners по нормализованному
+ * имени (поиск идёт по индексу хеша), создаёт новых владельцев при записи автомобилей
+ * и поддерживает счётчики автомобилей владельцев через {@link CarChangeListener}.
+ */
+@Service
+public class OwnerDirectory implements CarChangeListener {
+
+    private final OwnerRepository ownerRepository;
+
+    public OwnerDirectory(OwnerRepository ownerRepository) {
+        this.ownerRepository = ownerRepository;
+    }
+
+    /**
+     * Нормализует имя: убирает лишние пробелы, приводит к нижнему регистру и заменяет «ё» на «е».
+     *
+     * @param name имя владельца
+     * @return нормализованное имя или null для пустого имени
+     */
+    public static String normalize(String name) {
+        if (name == null || name.isBlank()) {
+            return null;
+        }
+        return name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT).replace('ё', 'е');
+    }
+
+    /**
+     * Вычисляет 64-битный хеш FNV-1a нормализованного имени.
+     *
+     * @param normalizedName нормализованное имя
+     * @return хеш имени
+     */
+    public static long hash(String normalizedName) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : normalizedName.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Находит владельца по имени.
+     *
+     * @param name имя владельца в произвольном регистре
+     * @return владелец или пустой Optional
+     */
+    public Optional<Owner> find(String name) {
+        String normalized = normalize(name);
+        if (normalized == null) {
+            return Optional.empty();
+        }
+        return ownerRepository.findByNameHash(hash(normalized)).stream()
+                .filter(owner -> normalized.equals(owner.getNormalizedName())) // Защита от коллизий хеша
+                .findFirst();
+    }
+
+    /**
+     * Находит владельца по идентификатору.
+     *
+     * @param id идентификатор владельца
+     * @return владелец или пустой Optional
+     */
+    public Optional<Owner> findById(Long id) {
+        return ownerRepository.findById(id);
+    }
+
+    /**
+     * Находит владельца по имени или создаёт нового.
+     *
+     * @param name имя владельца
+     * @return владелец или null для пустого имени
+     */
+    public Owner resolve(String name) {
+        String normalized = normalize(name);
+        if (normalized == null) {
+            return null;
+        }
+        Optional<Owner> existing = find(name);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        Owner owner = new Owner();
+        owner.setName(name.trim());
+        owner.setNormalizedName(normalized);
+        owner.setNameHash(hash(normalized));
+        owner.setCarCount(0);
+        try {
+            return ownerRepository.save(owner);
+        } catch (DataIntegrityViolationException e) {
+            // Владельца одновременно создал другой запрос: уникальный индекс normalized_name
+            return find(name).orElseThrow(() -> e);
+        }
+    }
+
+    @Override
+    public void onCarAdded(Car car) {
+        adjust(car.getOwnerId(), 1);
+    }
+
+    @Override
+    public void onCarUpdated(Car before, Car after) {
+        if (!Objects.equals(before.getOwnerId(), after.getOwnerId())) {
+            adjust(before.getOwnerId(), -1);
+            adjust(after.getOwnerId(), 1);
+        }
+    }
+
+    @Override
+    public void onCarDeleted(Car car) {
+        adjust(car.getOwnerId(), -1);
+    }
+
+    private void adjust(Long ownerId, int delta) {
+        if (ownerId != null) {
+            ownerRepository.adjustCarCount(ownerId, delta);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package ru.evtu.kursovoy_new.second;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import ru.evtu.kursovoy_new.jdbc.SchemaSupport;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Миграция справочника владельцев.
+ *
+ * При создании бина создаёт таблицу owners и столбец owner_id в cars (и в архиве),
+ * а при запуске приложения переносит существующие строки owner_name в справочник
+ * и пересчитывает количество автомобилей у владельцев. Повторный запуск безопасен:
+ * обрабатываются только автомобили без owner_id. При включённом шардировании автомобили
+ * обрабатываются на каждом шарде, а количество суммируется по шардам.
+ */
+@Component
+@Order(0) // До построения структур в памяти, читающих owner_id
+public class OwnerMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(OwnerMigration.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CarArchiveRepository carArchiveRepository;
+    private final OwnerDirectory ownerDirectory;
+    private final ObjectProvider<ShardedCarStore> shardedCarStore;
+
+    public OwnerMigration(JdbcTemplate jdbcTemplate, CarArchiveRepository carArchiveRepository,
+                          OwnerDirectory ownerDirectory, ObjectProvider<ShardedCarStore> shardedCarStore) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.carArchiveRepository = carArchiveRepository; // Архив должен быть создан до изменения его схемы
+        this.ownerDirectory = ownerDirectory;
+        this.shardedCarStore = shardedCarStore;
+    }
+
+    /**
+     * Создаёт таблицу owners и столбцы owner_id.
+     */
+    @PostConstruct
+    public void migrateSchema() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS owners ("
+                + "id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY, "
+                + "name VARCHAR(255) NOT NULL, "
+                + "normalized_name VARCHAR(255) NOT NULL, "
+                + "name_hash BIGINT NOT NULL, "
+                + "car_count INT NOT NULL DEFAULT 0, "
+                + "UNIQUE KEY uk_owners_normalized_name (normalized_name), "
+                + "INDEX idx_owners_name_hash (name_hash))");
+        SchemaSupport.addColumnIfMissing(jdbcTemplate, "cars", "owner_id", "BIGINT NULL");
+        SchemaSupport.createIndexIfMissing(jdbcTemplate, "cars", "idx_cars_owner_id", "owner_id");
+        if (carArchiveRepository.isEnabled()) {
+            SchemaSupport.addColumnIfMissing(jdbcTemplate, "cars_archive", "owner_id", "BIGINT NULL");
+            SchemaSupport.createIndexIfMissing(jdbcTemplate, "cars_archive", "idx_cars_archive_owner_id", "owner_id");
+        }
+    }
+
+    /**
+     * Переносит имена владельцев из owner_name в справочник owners.
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        ShardedCarStore sharded = shardedCarStore.getIfAvailable();
+        if (sharded != null) {
+            int linked = 0;
+            for (JdbcTemplate shard : sharded.getShards()) {
+                linked += backfill(shard, "cars");
+            }
+            if (linked > 0) {
+                recount(sharded.getShards());
+                log.info("Справочник владельцев заполнен: связано {} автомобилей на {} шардах",
+                        linked, sharded.getShardCount());
+            }
+            return;
+        }
+
+        int linked = backfill(jdbcTemplate, "cars");
+        if (carArchiveRepository.isEnabled()) {
+            linked += backfill(jdbcTemplate, "cars_archive");
+        }
+        if (linked == 0) {
+            return;
+        }
+        String archiveCount = carArchiveRepository.isEnabled()
+                ? " + (SELECT COUNT(*) FROM cars_archive a WHERE a.owner_id = owners.id)" : "";
+        jdbcTemplate.update("UPDATE owners SET car_count = "
+                + "(SELECT COUNT(*) FROM cars c WHERE c.owner_id = owners.id)" + archiveCount);
+        log.info("Справочник владельцев заполнен: связано {} автомобилей", linked);
+    }
+
+    /**
+     * Пересчитывает car_count по автомобилям всех шардов: таблица owners находится
+     * в основной базе, поэтому подзапрос к cars здесь невозможен.
+     */
+    private void recount(List<JdbcTemplate> shards) {
+        Map<Long, Long> counts = new HashMap<>();
+        for (JdbcTemplate shard : shards) {
+            shard.query("SELECT owner_id, COUNT(*) FROM cars WHERE owner_id IS NOT NULL GROUP BY owner_id",
+                    (RowCallbackHandler) rs -> counts.merge(rs.getLong(1), rs.getLong(2), Long::sum));
+        }
+        List<Object[]> updates = jdbcTemplate.queryForList("SELECT id FROM owners", Long.class).stream()
+                .map(ownerId -> new Object[]{counts.getOrDefault(ownerId, 0L), ownerId})
+                .toList();
+        jdbcTemplate.batchUpdate("UPDATE owners SET car_count = ? WHERE id = ?", updates);
+    }
+
+    private int backfill(JdbcTemplate target, String table) {
+        List<String> names = target.queryForList("SELECT DISTINCT owner_name FROM " + table
+                + " WHERE owner_id IS NULL AND owner_name IS NOT NULL", String.class);
+        int linked = 0;
+        for (String name : names) {
+            Owner owner = ownerDirectory.resolve(name);
+            if (owner != null) {
+                linked += target.update("UPDATE " + table + " SET owner_id = ? WHERE owner_id IS NULL AND owner_name = ?",
+                        owner.getId(), name);
+            }
+        }
+        return linked;
+    }
+}
@@ -0,0 +1,18 @@
+package ru.evtu.kursovoy_new.second;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface OwnerRepository extends JpaRepository<Owner, Long> {
+    List<Owner> findByNameHash(Long nameHash); // Поиск по индексу хеша нормализованного имени
+
+    @Transactional
+    @Modifying
+    @Query("update Owner o set o.carCount = o.carCount + :delta where o.id = :id")
+    int adjustCarCount(@Param("id") Long id, @Param("delta") int delta); // Атомарное изменение счётчика
+}
@@ -0,0 +1,110 @@
+package ru.evtu.kursovoy_new.second;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Чтение автомобилей из оперативной таблицы cars и архива cars_archive
+ * с отсечением архива по границам дат запроса.
+ *
+ * Граница архива вычисляется детерминированно: первое число месяца, отстоящего от текущего
+ * на срок хранения. Задача архивации переносит только строки старше этой границы, а граница
+ * со временем лишь растёт, поэтому все строки архива гарантированно раньше текущей границы
+ * на любом узле. Запрос, нижняя граница дат которого не раньше границы архива,
+ * обращается только к оперативной таблице.
+ */
+@Component
+public class PartitionedCarReader {
+
+    private final CarRepository carRepository;
+    private final CarArchiveRepository carArchiveRepository;
+    private final int retentionMonths;
+
+    public PartitionedCarReader(CarRepository carRepository,
+                                CarArchiveRepository carArchiveRepository,
+                                @Value("${cars.archive.retention-months:12}") int retentionMonths) {
+        this.carRepository = carRepository;
+        this.carArchiveRepository = carArchiveRepository;
+        this.retentionMonths = retentionMonths;
+    }
+
+    /**
+     * Возвращает текущую границу архива: все строки архива зарегистрированы раньше неё.
+     *
+     * @return дата границы архива
+     */
+    public LocalDate getArchiveBoundary() {
+        return LocalDate.now().minusMonths(retentionMonths).withDayOfMonth(1);
+    }
+
+    /**
+     * Проверяет, используется ли архивная таблица.
+     *
+     * @return true, если архив включён
+     */
+    public boolean isArchiveEnabled() {
+        return carArchiveRepository.isEnabled();
+    }
+
+    public List<Car> findAll() {
+        return concat(carRepository.findAll(), isArchiveEnabled() ? carArchiveRepository.findAll() : List.of());
+    }
+
+    public List<Car> findByRegDateBetween(LocalDate startDate, LocalDate endDate) {
+        List<Car> hot = carRepository.findByRegDateBetween(startDate, endDate);
+        if (!isArchiveEnabled() || !startDate.isBefore(getArchiveBoundary())) {
+            return hot; // Архив отсекается: в нём нет строк в запрошенном диапазоне
+        }
+        return concat(hot, carArchiveRepository.findByRegDateBetween(startDate, endDate));
+    }
+
+    public List<Car> findByBrandIgnoreCase(String brand) {
+        return concat(carRepository.findByBrandIgnoreCase(brand),
+                isArchiveEnabled() ? carArchiveRepository.findByBrandIgnoreCase(brand) : List.of());
+    }
+
+    public List<Car> findByBrandContainingIgnoreCase(String title) {
+        return concat(carRepository.findByBrandContainingIgnoreCase(title),
+                isArchiveEnabled() ? carArchiveRepository.findByBrandContainingIgnoreCase(title) : List.of());
+    }
+
+    public List<Car> findByReleaseYearEquals(Integer releaseYear) {
+        return concat(carRepository.findByReleaseYearEquals(releaseYear),
+                isArchiveEnabled() ? carArchiveRepository.findByReleaseYearEquals(releaseYear) : List.of());
+    }
+
+    public List<Car> findByOwnerNameEquals(String ownerName) {
+        return concat(carRepository.findByOwnerNameEquals(ownerName),
+                isArchiveEnabled() ? carArchiveRepository.findByOwnerNameEquals(ownerName) : List.of());
+    }
+
+    public List<Car> findByOwnerId(Long ownerId) {
+        return concat(carRepository.findByOwnerId(ownerId),
+                isArchiveEnabled() ? carArchiveRepository.findByOwnerId(ownerId) : List.of());
+    }
+
+    public List<Car> findByBrandIdIn(Collection<Long> brandIds) {
+        return concat(carRepository.findByBrandIdIn(brandIds),
+                isArchiveEnabled() ? carArchiveRepository.findByBrandIdIn(brandIds) : List.of());
+    }
+
+    public List<Car> findByBrandIdIsNullAndBrandContainingIgnoreCase(String title) {
+        return concat(carRepository.findByBrandIdIsNullAndBrandContainingIgnoreCase(title),
+                isArchiveEnabled() ? carArchiveRepository.findByBrandIdIsNullAndBrandContainingIgnoreCase(title) : List.of());
+    }
+
+    private static List<Car> concat(List<Car> hot, List<Car> archived) {
+        if (archived.isEmpty()) {
+            return hot;
+        }
+        List<Car> result = new ArrayList<>(hot.size() + archived.size());
+        result.addAll(hot);
+        result.addAll(archived);
+        return result;
+    }
+}
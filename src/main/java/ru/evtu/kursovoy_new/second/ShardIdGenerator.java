@@ -0,0 +1,56 @@
+package ru.evtu.kursovoy_new.second;
+
+/**
+ * Генератор глобально уникальных идентификаторов автомобилей для шардированного хранилища.
+ *
+ * Идентификатор состоит из 31 бита времени в секундах от собственной эпохи (около 68 лет),
+ * 10 бит номера узла приложения и 12 бит счётчика внутри секунды. Идентификаторы
+ * монотонно растут в пределах узла и не пересекаются между узлами, поэтому не требуют
+ * общей последовательности в базе данных. Всего 53 бита: идентификатор точно представим
+ * числом JavaScript (Number.MAX_SAFE_INTEGER), и страницы получают его без округления.
+ */
+public class ShardIdGenerator {
+
+    private static final long EPOCH_SECONDS = 1704067200L; // 2024-01-01T00:00:00Z
+    private static final int TIME_BITS = 31;
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+
+    private final long nodeId;
+    private long lastSecond = -1;
+    private long sequence;
+
+    /**
+     * @param nodeId номер узла приложения от 0 до 1023
+     */
+    public ShardIdGenerator(long nodeId) {
+        if (nodeId < 0 || nodeId >= (1L << NODE_BITS)) {
+            throw new IllegalArgumentException("Номер узла должен быть в диапазоне 0..1023: " + nodeId);
+        }
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * Выдаёт следующий идентификатор.
+     *
+     * @return уникальный идентификатор
+     */
+    public synchronized long nextId() {
+        long now = Math.max(System.currentTimeMillis() / 1000, lastSecond); // Защита от перевода часов назад
+        if (now == lastSecond) {
+            sequence = (sequence + 1) & MAX_SEQUENCE;
+            if (sequence == 0) {
+                now = lastSecond + 1; // Счётчик исчерпан: занимаем следующую секунду
+            }
+        } else {
+            sequence = 0;
+        }
+        lastSecond = now;
+        long elapsed = now - EPOCH_SECONDS;
+        if (elapsed >= (1L << TIME_BITS)) {
+            throw new IllegalStateException("Исчерпан диапазон времени идентификаторов");
+        }
+        return (elapsed << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+    }
+}
@@ -0,0 +1,279 @@
+package ru.evtu.kursovoy_new.second;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.evtu.kursovoy_new.jdbc.SchemaSupport;
+import ru.evtu.kursovoy_new.jdbc.SlowQueryLog;
+import ru.evtu.kursovoy_new.jdbc.TimingDataSource;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Шардированное хранилище автомобилей.
+ *
+ * Каждый автомобиль хранится ровно на одном из N источников данных; шард определяется
+ * хешем идентификатора, а идентификаторы выдаёт {@link ShardIdGenerator}, поэтому они
+ * уникальны глобально. Операции по id обращаются к одному шарду, а поиск, статистика
+ * и выгрузка выполняются на всех шардах параллельно с последующим слиянием результатов
+ * по id. Для локальной проверки достаточно нескольких встроенных баз H2 (см. профиль shards).
+ */
+@Component
+@ConditionalOnProperty(name = "cars.sharding.enabled", havingValue = "true")
+public class ShardedCarStore implements CarStore {
+
+    private static final String COLUMNS = CarArchiveRepository.COLUMNS;
+
+    private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS cars ("
+            + "id BIGINT NOT NULL PRIMARY KEY, "
+            + "brand VARCHAR(255) NOT NULL, "
+            + "release_year INT NOT NULL, "
+            + "reg_date DATE, "
+            + "owner_name VARCHAR(255), "
+            + "owner_id BIGINT, "
+            + "brand_id BIGINT, "
+            + "model_id BIGINT, "
+            + "INDEX idx_cars_reg_date (reg_date), "
+            + "INDEX idx_cars_owner_id (owner_id), "
+            + "INDEX idx_cars_brand_id (brand_id))";
+
+    private final List<HikariDataSource> dataSources = new ArrayList<>();
+    private final List<JdbcTemplate> shards = new ArrayList<>();
+    private final ShardIdGenerator idGenerator;
+    private final ExecutorService executor;
+
+    public ShardedCarStore(@Value("${cars.sharding.urls}") List<String> urls,
+                           @Value("${cars.sharding.username:}") String username,
+                           @Value("${cars.sharding.password:}") String password,
+                           @Value("${cars.sharding.node-id:}") String nodeId,
+                           ObjectProvider<SlowQueryLog> slowQueryLog) {
+        if (urls.isEmpty()) {
+            throw new IllegalStateException("Не заданы адреса шардов cars.sharding.urls");
+        }
+        if (nodeId.isBlank()) {
+            // Узлы с одинаковым номером выдавали бы совпадающие идентификаторы
+            throw new IllegalStateException("Не задан уникальный номер узла cars.sharding.node-id (0..1023)");
+        }
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("cars-shard-" + i);
+            dataSource.setJdbcUrl(urls.get(i).trim());
+            dataSource.setUsername(username);
+            dataSource.setPassword(password);
+            dataSources.add(dataSource);
+            // Пулы шардов не являются бинами, поэтому захват медленных запросов подключается здесь
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(new TimingDataSource(dataSource, slowQueryLog::getIfAvailable));
+            jdbcTemplate.execute(CREATE_TABLE);
+            SchemaSupport.addColumnIfMissing(jdbcTemplate, "cars", "owner_id", "BIGINT NULL");
+            SchemaSupport.addColumnIfMissing(jdbcTemplate, "cars", "brand_id", "BIGINT NULL");
+            SchemaSupport.addColumnIfMissing(jdbcTemplate, "cars", "model_id", "BIGINT NULL");
+            shards.add(jdbcTemplate);
+        }
+        this.idGenerator = new ShardIdGenerator(Long.parseLong(nodeId.trim()));
+        this.executor = Executors.newFixedThreadPool(urls.size(), runnable -> {
+            Thread thread = new Thread(runnable, "cars-shard-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+        dataSources.forEach(HikariDataSource::close);
+    }
+
+    /**
+     * Возвращает количество шардов.
+     *
+     * @return количество шардов
+     */
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * Возвращает шаблоны JDBC всех шардов для миграций данных, которые должны пройти
+     * по каждому шарду.
+     *
+     * @return шаблоны JDBC шардов
+     */
+    public List<JdbcTemplate> getShards() {
+        return Collections.unmodifiableList(shards);
+    }
+
+    @Override
+    public List<Car> findAll() {
+        return scatter(shard -> shard.query("SELECT " + COLUMNS + " FROM cars ORDER BY id",
+                CarArchiveRepository.CAR_ROW_MAPPER));
+    }
+
+    @Override
+    public Optional<Car> findById(Long id) {
+        List<Car> cars = shardFor(id).query("SELECT " + COLUMNS + " FROM cars WHERE id = ?",
+                CarArchiveRepository.CAR_ROW_MAPPER, id);
+        return cars.stream().findFirst();
+    }
+
+    /**
+     * Идентификаторы группируются по шардам, и каждый шард получает только свои.
+     */
+    @Override
+    public List<Car> findByIdIn(Collection<Long> ids) {
+        Map<JdbcTemplate, List<Long>> byShard = new HashMap<>();
+        for (Long id : ids) {
+            byShard.computeIfAbsent(shardFor(id), shard -> new ArrayList<>()).add(id);
+        }
+        return scatter(shard -> {
+            List<Long> shardIds = byShard.get(shard);
+            if (shardIds == null) {
+                return List.of();
+            }
+            String placeholders = String.join(",", Collections.nCopies(shardIds.size(), "?"));
+            return shard.query("SELECT " + COLUMNS + " FROM cars WHERE id IN (" + placeholders + ") ORDER BY id",
+                    CarArchiveRepository.CAR_ROW_MAPPER, shardIds.toArray());
+        });
+    }
+
+    @Override
+    public Car save(Car car) {
+        if (car.getId() == null) {
+            car.setId(idGenerator.nextId());
+            shardFor(car.getId()).update("INSERT INTO cars (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                    car.getId(), car.getBrand(), car.getReleaseYear(), toSqlDate(car.getRegDate()),
+                    car.getOwnerName(), car.getOwnerId(), car.getBrandId(), car.getModelId());
+        } else {
+            shardFor(car.getId()).update(
+                    "UPDATE cars SET brand = ?, release_year = ?, reg_date = ?, owner_name = ?, owner_id = ?, "
+                            + "brand_id = ?, model_id = ? WHERE id = ?",
+                    car.getBrand(), car.getReleaseYear(), toSqlDate(car.getRegDate()), car.getOwnerName(),
+                    car.getOwnerId(), car.getBrandId(), car.getModelId(), car.getId());
+        }
+        return car;
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        shardFor(id).update("DELETE FROM cars WHERE id = ?", id);
+    }
+
+    @Override
+    public List<Car> findByRegDateBetween(LocalDate startDate, LocalDate endDate) {
+        return scatter(shard -> shard.query(
+                "SELECT " + COLUMNS + " FROM cars WHERE reg_date BETWEEN ? AND ? ORDER BY id",
+                CarArchiveRepository.CAR_ROW_MAPPER, Date.valueOf(startDate), Date.valueOf(endDate)));
+    }
+
+    @Override
+    public List<Car> findByBrandIgnoreCase(String brand) {
+        return scatter(shard -> shard.query("SELECT " + COLUMNS + " FROM cars WHERE UPPER(brand) = ? ORDER BY id",
+                CarArchiveRepository.CAR_ROW_MAPPER, brand.toUpperCase(Locale.ROOT)));
+    }
+
+    @Override
+    public List<Car> findByBrandContainingIgnoreCase(String title) {
+        String pattern = "%" + (title != null ? title.toUpperCase(Locale.ROOT) : "") + "%";
+        return scatter(shard -> shard.query("SELECT " + COLUMNS + " FROM cars WHERE UPPER(brand) LIKE ? ORDER BY id",
+                CarArchiveRepository.CAR_ROW_MAPPER, pattern));
+    }
+
+    @Override
+    public List<Car> findByReleaseYearEquals(Integer releaseYear) {
+        return scatter(shard -> shard.query("SELECT " + COLUMNS + " FROM cars WHERE release_year = ? ORDER BY id",
+                CarArchiveRepository.CAR_ROW_MAPPER, releaseYear));
+    }
+
+    @Override
+    public List<Car> findByOwnerNameEquals(String ownerName) {
+        return scatter(shard -> shard.query("SELECT " + COLUMNS + " FROM cars WHERE owner_name = ? ORDER BY id",
+                CarArchiveRepository.CAR_ROW_MAPPER, ownerName));
+    }
+
+    @Override
+    public List<Car> findByOwnerId(Long ownerId) {
+        return scatter(shard -> shard.query("SELECT " + COLUMNS + " FROM cars WHERE owner_id = ? ORDER BY id",
+                CarArchiveRepository.CAR_ROW_MAPPER, ownerId));
+    }
+
+    @Override
+    public List<Car> findByBrandIdIn(Collection<Long> brandIds) {
+        String placeholders = String.join(",", Collections.nCopies(brandIds.size(), "?"));
+        Object[] args = brandIds.toArray();
+        return scatter(shard -> shard.query(
+                "SELECT " + COLUMNS + " FROM cars WHERE brand_id IN (" + placeholders + ") ORDER BY id",
+                CarArchiveRepository.CAR_ROW_MAPPER, args));
+    }
+
+    @Override
+    public List<Car> findByBrandIdIsNullAndBrandContainingIgnoreCase(String title) {
+        String pattern = "%" + (title != null ? title.toUpperCase(Locale.ROOT) : "") + "%";
+        return scatter(shard -> shard.query(
+                "SELECT " + COLUMNS + " FROM cars WHERE brand_id IS NULL AND UPPER(brand) LIKE ? ORDER BY id",
+                CarArchiveRepository.CAR_ROW_MAPPER, pattern));
+    }
+
+    /**
+     * Каждый шард возвращает первые offset + size строк по id; после слияния этого
+     * достаточно, чтобы точно восстановить запрошенную глобальную страницу.
+     */
+    @Override
+    public List<Car> findPage(int page, int size) {
+        long offset = (long) page * size;
+        long window = offset + size;
+        List<List<Car>> parts = gather(shard -> shard.query("SELECT " + COLUMNS + " FROM cars ORDER BY id LIMIT ?",
+                CarArchiveRepository.CAR_ROW_MAPPER, window));
+        return CarStore.mergeById(parts, offset, size);
+    }
+
+    @Override
+    public List<Car> findPageAfter(long afterId, int size) {
+        List<List<Car>> parts = gather(shard -> shard.query("SELECT " + COLUMNS + " FROM cars WHERE id > ? ORDER BY id LIMIT ?",
+                CarArchiveRepository.CAR_ROW_MAPPER, afterId, size));
+        return CarStore.mergeById(parts, 0, size);
+    }
+
+    private JdbcTemplate shardFor(long id) {
+        long mixed = id * 0x9E3779B97F4A7C15L; // Перемешивание битов, чтобы соседние id расходились по шардам
+        return shards.get((int) Math.floorMod(mixed ^ (mixed >>> 32), (long) shards.size()));
+    }
+
+    private List<Car> scatter(Function<JdbcTemplate, List<Car>> query) {
+        return CarStore.mergeById(gather(query), 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Выполняет запрос на всех шардах параллельно и собирает результаты.
+     */
+    private List<List<Car>> gather(Function<JdbcTemplate, List<Car>> query) {
+        List<Future<List<Car>>> futures = new ArrayList<>(shards.size());
+        for (JdbcTemplate shard : shards) {
+            futures.add(executor.submit(() -> query.apply(shard)));
+        }
+        List<List<Car>> results = new ArrayList<>(shards.size());
+        try {
+            for (Future<List<Car>> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Запрос к шардам прерван", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Ошибка запроса к шарду: " + e.getCause().getMessage(), e.getCause());
+        }
+        return results;
+    }
+
+    private static Date toSqlDate(LocalDate date) {
+        return date != null ? Date.valueOf(date) : null;
+    }
+}
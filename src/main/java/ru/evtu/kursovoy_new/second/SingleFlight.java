@@ -0,0 +1,109 @@
+package ru.evtu.kursovoy_new.second;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Объединение одновременных одинаковых чтений (single-flight).
+ *
+ * Первый вызов с данным ключом выполняет загрузку, а вызовы с тем же ключом, пришедшие
+ * до её завершения, ждут и получают тот же результат. После завершения ключ удаляется,
+ * поэтому результаты не кэшируются: следующий вызов снова читает базу. Если ожидание
+ * превысило тайм-аут, вызывающий получает {@link SingleFlightTimeoutException} (503), а не
+ * запускает ещё одну загрузку поверх медленной. Общие результаты
+ * возвращаются в неизменяемом виде, чтобы один вызывающий не мог изменить данные другого.
+ */
+@Component
+public class SingleFlight {
+
+    private static final Logger log = LoggerFactory.getLogger(SingleFlight.class);
+
+    private final ConcurrentMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final long timeoutMs;
+    private final Counter executed;
+    private final Counter shared;
+    private final Counter timedOut;
+
+    public SingleFlight(@Value("${cars.single-flight.timeout-ms:5000}") long timeoutMs, MeterRegistry meterRegistry) {
+        this.timeoutMs = timeoutMs;
+        this.executed = counter(meterRegistry, "executed");
+        this.shared = counter(meterRegistry, "shared");
+        this.timedOut = counter(meterRegistry, "timeout");
+        meterRegistry.gauge("cars.single_flight.in_flight", inFlight, Map::size);
+    }
+
+    /**
+     * Выполняет загрузку или присоединяется к уже выполняющейся с тем же ключом.
+     *
+     * @param key    ключ: имя метода и нормализованные аргументы
+     * @param loader загрузка результата
+     * @return результат загрузки (списки и карты — неизменяемые)
+     * @throws SingleFlightTimeoutException если общий результат не получен за тайм-аут
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Supplier<T> loader) {
+        CompletableFuture<Object> own = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, own);
+        if (existing == null) {
+            executed.increment();
+            try {
+                T result = (T) immutable(loader.get());
+                own.complete(result);
+                return result;
+            } catch (RuntimeException | Error e) {
+                own.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, own);
+            }
+        }
+
+        shared.increment();
+        try {
+            return (T) existing.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timedOut.increment();
+            log.debug("Ожидание общего результата {} превысило {} мс", key, timeoutMs);
+            throw new SingleFlightTimeoutException(key, timeoutMs);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание результата прервано", e);
+        }
+    }
+
+    private static Object immutable(Object value) {
+        if (value instanceof List<?> list) {
+            return Collections.unmodifiableList(list);
+        }
+        if (value instanceof Map<?, ?> map) {
+            return Collections.unmodifiableMap(map);
+        }
+        return value;
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("cars.single_flight.calls")
+                .description("Вызовы чтения через объединение одинаковых запросов")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,18 @@
+package ru.evtu.kursovoy_new.second;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Общий результат не был получен за отведённое время ожидания.
+ *
+ * Отвечает клиенту 503: загрузка уже выполняется и перегружает базу, поэтому повторять
+ * её в ожидающем потоке нельзя — клиенту лучше повторить запрос позже.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class SingleFlightTimeoutException extends RuntimeException {
+
+    public SingleFlightTimeoutException(String key, long timeoutMs) {
+        super("Ожидание общего результата " + key + " превысило " + timeoutMs + " мс");
+    }
+}
@@ -0,0 +1,198 @@
+package ru.evtu.kursovoy_new.second;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.ui.ExtendedModelMap;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Прогрев приложения после запуска.
+ *
+ * Выполняется последним из ApplicationRunner: заранее открывает соединения пула, обращается
+ * к каталогу и статистике, а затем повторяет синтетические вызовы основных путей контроллеров
+ * и сервиса (поиск, список марок, гистограмма) с сериализацией ответа в JSON, пока время
+ * раунда не стабилизируется. Пока прогрев идёт, проба готовности actuator сообщает
+ * REFUSING_TRAFFIC; Spring Boot переводит её в ACCEPTING_TRAFFIC после завершения
+ * всех ApplicationRunner, то есть только после прогрева.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class StartupWarmup implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupWarmup.class);
+
+    /** Количество подряд идущих раундов, время которых должно быть близким. */
+    private static final int STABLE_ROUNDS = 3;
+
+    private final boolean enabled;
+    private final int minRounds;
+    private final int maxRounds;
+    private final long maxDurationMs;
+    private final double tolerance;
+
+    private final DataSource dataSource;
+    private final CarService carService;
+    private final CarCatalog carCatalog;
+    private final CarAnalyticsCube carAnalyticsCube;
+    private final CarBrandRepository carBrandRepository;
+    private final CarApiController carApiController;
+    private final CarController carController;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public StartupWarmup(@Value("${cars.warmup.enabled:true}") boolean enabled,
+                         @Value("${cars.warmup.min-rounds:5}") int minRounds,
+                         @Value("${cars.warmup.max-rounds:200}") int maxRounds,
+                         @Value("${cars.warmup.max-duration-ms:30000}") long maxDurationMs,
+                         @Value("${cars.warmup.tolerance:0.1}") double tolerance,
+                         DataSource dataSource, CarService carService, CarCatalog carCatalog,
+                         CarAnalyticsCube carAnalyticsCube, CarBrandRepository carBrandRepository,
+                         CarApiController carApiController, CarController carController,
+                         ObjectMapper objectMapper, ApplicationEventPublisher eventPublisher) {
+        this.enabled = enabled;
+        this.minRounds = minRounds;
+        this.maxRounds = maxRounds;
+        this.maxDurationMs = maxDurationMs;
+        this.tolerance = tolerance;
+        this.dataSource = dataSource;
+        this.carService = carService;
+        this.carCatalog = carCatalog;
+        this.carAnalyticsCube = carAnalyticsCube;
+        this.carBrandRepository = carBrandRepository;
+        this.carApiController = carApiController;
+        this.carController = carController;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.REFUSING_TRAFFIC);
+        long started = System.nanoTime();
+        try {
+            openPool();
+            List<String> brands = carBrandRepository.findAll().stream()
+                    .map(CarBrand::getBrandName)
+                    .limit(3)
+                    .toList();
+            brands.forEach(carCatalog::resolveBrandId);
+            int rounds = runUntilStable(brands, started);
+            log.info("Прогрев завершён за {} мс, раундов: {}",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), rounds);
+        } catch (RuntimeException e) {
+            // Прогрев не должен мешать запуску: приложение просто начнёт принимать трафик холодным
+            log.warn("Прогрев прерван ошибкой", e);
+        }
+    }
+
+    /**
+     * Открывает минимальное число соединений пула одновременно, чтобы первые запросы их не ждали.
+     */
+    private void openPool() {
+        int connections = 1;
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+                connections = Math.max(1, Math.min(hikari.getMinimumIdle(), hikari.getMaximumPoolSize()));
+            }
+        } catch (SQLException e) {
+            log.debug("Не удалось определить размер пула соединений", e);
+        }
+        List<Connection> opened = new ArrayList<>();
+        try {
+            for (int i = 0; i < connections; i++) {
+                Connection connection = dataSource.getConnection();
+                opened.add(connection);
+                connection.isValid(1);
+            }
+        } catch (SQLException e) {
+            log.warn("Не удалось заранее открыть соединения с базой данных", e);
+        } finally {
+            for (Connection connection : opened) {
+                try {
+                    connection.close(); // Соединение возвращается в пул
+                } catch (SQLException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Повторяет раунды синтетических вызовов, пока время последних раундов не перестанет
+     * отличаться от их медианы больше чем на допуск, или пока не исчерпан лимит.
+     */
+    private int runUntilStable(List<String> brands, long started) {
+        long deadline = started + TimeUnit.MILLISECONDS.toNanos(maxDurationMs);
+        long[] recent = new long[STABLE_ROUNDS];
+        int round = 0;
+        while (round < maxRounds && System.nanoTime() - deadline < 0) {
+            long roundStarted = System.nanoTime();
+            exercise(brands);
+            recent[round % STABLE_ROUNDS] = System.nanoTime() - roundStarted;
+            round++;
+            if (round >= Math.max(minRounds, STABLE_ROUNDS) && isStable(recent)) {
+                break;
+            }
+        }
+        return round;
+    }
+
+    private boolean isStable(long[] recent) {
+        long[] sorted = recent.clone();
+        Arrays.sort(sorted);
+        long median = sorted[sorted.length / 2];
+        for (long value : recent) {
+            if (Math.abs(value - median) > median * tolerance) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Один раунд: основные пути чтения через контроллеры и сервис с сериализацией ответов.
+     */
+    private void exercise(List<String> brands) {
+        LocalDate today = LocalDate.now();
+        serialize(carApiController.getAllBrands().getBody());
+        serialize(carApiController.getRegCountByDay().getBody());
+        carController.showHistogram(new ExtendedModelMap());
+        serialize(carApiController.searchCars(null, null, today.minusDays(7), today, null));
+        for (String brand : brands) {
+            serialize(carApiController.searchCars(brand, null, null, null, null));
+            serialize(carService.findByTitle(brand));
+        }
+        carAnalyticsCube.query(null, null, null, null, null, List.of(CarAnalyticsCube.Dimension.BRAND));
+    }
+
+    private void serialize(Object value) {
+        try {
+            objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            log.debug("Ошибка сериализации при прогреве", e);
+        }
+    }
+}
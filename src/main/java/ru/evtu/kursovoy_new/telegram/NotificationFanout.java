@@ -0,0 +1,193 @@
+package ru.evtu.kursovoy_new.telegram;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.evtu.kursovoy_new.api.TokenBucket;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Параллельная рассылка уведомлений подписчикам.
+ *
+ * Сообщения складываются в очереди чатов (порядок внутри чата сохраняется), а единственный
+ * поток-диспетчер выбирает чат, для которого истёк интервал между сообщениями, дожидается
+ * жетона глобального ограничителя (лимит Telegram на бота) и свободного отправителя и передаёт
+ * отправку в пул потоков. Поэтому в пуле не копятся задачи, когда Telegram отвечает медленно:
+ * все ждущие сообщения остаются в очередях чатов и учитываются в их ограничении размера.
+ * Так очередь разбирается ровно с допустимой скоростью, без повторных попыток и перепланирования
+ * задач. Ошибка отправки одному получателю не влияет на остальных; при переполнении очереди
+ * новые сообщения отбрасываются.
+ */
+@Component
+public class NotificationFanout {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationFanout.class);
+
+    private final TelegramBotService telegramBotService;
+    private final SubscriptionRegistry subscriptionRegistry;
+    private final ExecutorService senders;
+    private final Semaphore freeSenders; // Не больше задач, чем потоков отправки
+    private final TokenBucket globalLimit;
+    private final long chatIntervalNanos;
+    private final int maxPending;
+
+    private final Map<String, ArrayDeque<String>> pending = new HashMap<>(); // Очереди чатов, доступ под pending
+    private final DelayQueue<ChatSlot> ready = new DelayQueue<>(); // Чаты с сообщениями по времени готовности
+    private int pendingCount;
+    private final Thread dispatcher;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public NotificationFanout(TelegramBotService telegramBotService,
+                              SubscriptionRegistry subscriptionRegistry,
+                              @Value("${telegram.fanout.threads:8}") int threads,
+                              @Value("${telegram.fanout.global-per-second:30}") double globalPerSecond,
+                              @Value("${telegram.fanout.chat-per-second:1}") double chatPerSecond,
+                              @Value("${telegram.fanout.queue-size:10000}") int maxPending) {
+        this.telegramBotService = telegramBotService;
+        this.subscriptionRegistry = subscriptionRegistry;
+        this.senders = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "telegram-fanout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.freeSenders = new Semaphore(threads);
+        this.globalLimit = new TokenBucket(1, globalPerSecond); // Без всплесков: ровно с лимитом Telegram
+        this.chatIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / chatPerSecond);
+        this.maxPending = maxPending;
+        this.dispatcher = new Thread(this::dispatch, "telegram-fanout-dispatcher");
+        this.dispatcher.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void register() {
+        dispatcher.start();
+        telegramBotService.setNotificationFanout(this);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.interrupt();
+        senders.shutdownNow();
+    }
+
+    /**
+     * Ставит сообщение в очередь для всех подписчиков события.
+     *
+     * @param eventType тип события (add, update, delete)
+     * @param brand     марка автомобиля
+     * @param text      текст уведомления
+     * @return количество получателей
+     */
+    public int publish(String eventType, String brand, String text) {
+        Set<String> recipients = subscriptionRegistry.recipients(eventType, brand);
+        for (String chatId : recipients) {
+            enqueue(chatId, text);
+        }
+        return recipients.size();
+    }
+
+    public long getSent() {
+        return sent.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    private void enqueue(String chatId, String text) {
+        synchronized (pending) {
+            if (pendingCount >= maxPending) {
+                failed.incrementAndGet();
+                log.warn("Очередь уведомлений переполнена, сообщение в чат {} отброшено", chatId);
+                return;
+            }
+            ArrayDeque<String> queue = pending.get(chatId);
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                pending.put(chatId, queue);
+                ready.add(new ChatSlot(chatId, System.nanoTime()));
+            }
+            queue.add(text);
+            pendingCount++;
+        }
+    }
+
+    /**
+     * Цикл диспетчера: по одному сообщению от готового чата с глобальной скоростью.
+     * Очередь чата удаляется только после интервала без новых сообщений, чтобы новое
+     * сообщение не обошло ограничение частоты для чата.
+     */
+    private void dispatch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                ChatSlot slot = ready.take();
+                String text;
+                synchronized (pending) {
+                    ArrayDeque<String> queue = pending.get(slot.chatId());
+                    text = queue != null ? queue.poll() : null;
+                    if (text == null) {
+                        pending.remove(slot.chatId());
+                    } else {
+                        pendingCount--;
+                    }
+                }
+                if (text == null) {
+                    continue;
+                }
+                freeSenders.acquire(); // Сначала отправитель, затем жетон: жетон не должен истечь в ожидании
+                long wait;
+                while ((wait = globalLimit.tryAcquire()) > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                try {
+                    senders.execute(() -> send(slot.chatId(), text));
+                } catch (RejectedExecutionException e) {
+                    freeSenders.release();
+                    throw e;
+                }
+                ready.add(new ChatSlot(slot.chatId(), System.nanoTime() + chatIntervalNanos));
+            }
+        } catch (InterruptedException | RejectedExecutionException e) {
+            // Приложение завершается
+        }
+    }
+
+    private void send(String chatId, String text) {
+        try {
+            if (telegramBotService.sendText(chatId, text)) {
+                sent.incrementAndGet();
+            } else {
+                failed.incrementAndGet();
+            }
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            log.warn("Не удалось отправить уведомление в чат {}", chatId, e);
+        } finally {
+            freeSenders.release();
+        }
+    }
+
+    /**
+     * Чат, которому можно отправить следующее сообщение начиная с eligibleAtNanos.
+     */
+    private record ChatSlot(String chatId, long eligibleAtNanos) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(eligibleAtNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(eligibleAtNanos, ((ChatSlot) other).eligibleAtNanos);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package ru.evtu.kursovoy_new.telegram;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.evtu.kursovoy_new.cluster.ClusterInvalidationListener;
+import ru.evtu.kursovoy_new.cluster.Invalidation;
+import ru.evtu.kursovoy_new.cluster.InvalidationBus;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Реестр подписчиков Telegram-уведомлений.
+ *
+ * Подписки хранятся в таблице telegram_subscriptions, а в памяти поддерживается индекс
+ * «(тип события, марка) → множество чатов», поэтому получатели события определяются
+ * объединением четырёх множеств без обращения к базе данных. Значение «*» в типе события
+ * или марке означает подписку на все значения. Изменения подписок публикуются в шине
+ * инвалидации, и остальные экземпляры приложения перечитывают индекс.
+ *
+ * Уведомления содержат имена владельцев, поэтому подписаться могут только чаты из
+ * {@link TelegramChatAllowlist}; подписки чатов, исключённых из списка позже, не получают рассылку.
+ */
+@Component
+public class SubscriptionRegistry implements ClusterInvalidationListener {
+
+    /** Подстановочное значение: все типы событий или все марки. */
+    public static final String ANY = "*";
+
+    /** Поддерживаемые типы событий. */
+    public static final Set<String> EVENT_TYPES = Set.of("add", "update", "delete");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final InvalidationBus invalidationBus;
+    private final TelegramChatAllowlist chatAllowlist;
+    private final String defaultChatId;
+    private volatile Map<String, Set<String>> index = new ConcurrentHashMap<>();
+    // Изменения таблицы вместе с индексом и перечитывание индекса выполняются под этой блокировкой,
+    // чтобы подписка, сделанная во время перечитывания, не пропала при замене индекса
+    private final Object writeLock = new Object();
+
+    public SubscriptionRegistry(JdbcTemplate jdbcTemplate, InvalidationBus invalidationBus,
+                                TelegramChatAllowlist chatAllowlist,
+                                @Value("${telegram.default-chat-id:}") String defaultChatId) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.invalidationBus = invalidationBus;
+        this.chatAllowlist = chatAllowlist;
+        this.defaultChatId = defaultChatId;
+    }
+
+    /**
+     * Создаёт таблицу подписок и загружает индекс. Если подписок ещё нет,
+     * подписывает чат по умолчанию на все события.
+     */
+    @PostConstruct
+    public void init() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS telegram_subscriptions ("
+                + "chat_id VARCHAR(32) NOT NULL, "
+                + "event_type VARCHAR(16) NOT NULL, "
+                + "brand VARCHAR(255) NOT NULL, "
+                + "PRIMARY KEY (chat_id, event_type, brand))");
+        reload();
+        if (index.isEmpty() && chatAllowlist.isAllowed(defaultChatId)) {
+            subscribe(defaultChatId, ANY, ANY);
+        }
+    }
+
+    /**
+     * Перечитывает индекс из таблицы подписок. Новый индекс строится отдельно и заменяет
+     * прежний целиком, поэтому рассылка не видит его в промежуточном состоянии.
+     */
+    public void reload() {
+        synchronized (writeLock) {
+            Map<String, Set<String>> loaded = new ConcurrentHashMap<>();
+            jdbcTemplate.query("SELECT chat_id, event_type, brand FROM telegram_subscriptions",
+                    rs -> {
+                        indexAdd(loaded, rs.getString("chat_id"), rs.getString("event_type"), rs.getString("brand"));
+                    });
+            index = loaded;
+        }
+    }
+
+    @Override
+    public void onRemoteInvalidations(List<Invalidation> invalidations) {
+        if (invalidations.stream().anyMatch(invalidation -> InvalidationBus.TOPIC_SUBSCRIPTIONS.equals(invalidation.topic()))) {
+            reload();
+        }
+    }
+
+    /**
+     * Подписывает чат на события.
+     *
+     * @param chatId    идентификатор чата
+     * @param eventType тип события (add, update, delete) или «*»
+     * @param brand     марка или «*»
+     * @return true, если подписка создана
+     * @throws IllegalArgumentException если чату не разрешено получать уведомления
+     */
+    public boolean subscribe(String chatId, String eventType, String brand) {
+        if (!chatAllowlist.isAllowed(chatId)) {
+            throw new IllegalArgumentException("Подписка для этого чата не разрешена.");
+        }
+        String type = normalizeType(eventType);
+        String brandKey = normalizeBrand(brand);
+        int inserted;
+        synchronized (writeLock) {
+            inserted = jdbcTemplate.update("INSERT IGNORE INTO telegram_subscriptions (chat_id, event_type, brand) "
+                    + "VALUES (?, ?, ?)", chatId, type, brandKey);
+            indexAdd(index, chatId, type, brandKey);
+        }
+        if (inserted > 0) {
+            invalidationBus.publish(InvalidationBus.TOPIC_SUBSCRIPTIONS, null, "add");
+        }
+        return inserted > 0;
+    }
+
+    /**
+     * Отменяет подписку чата.
+     *
+     * @param chatId    идентификатор чата
+     * @param eventType тип события или «*»
+     * @param brand     марка или «*»
+     * @return true, если подписка существовала
+     */
+    public boolean unsubscribe(String chatId, String eventType, String brand) {
+        String type = normalizeType(eventType);
+        String brandKey = normalizeBrand(brand);
+        int deleted;
+        synchronized (writeLock) {
+            deleted = jdbcTemplate.update("DELETE FROM telegram_subscriptions WHERE chat_id = ? AND event_type = ? AND brand = ?",
+                    chatId, type, brandKey);
+            Set<String> chats = index.get(key(type, brandKey));
+            if (chats != null) {
+                chats.remove(chatId);
+            }
+        }
+        if (deleted > 0) {
+            invalidationBus.publish(InvalidationBus.TOPIC_SUBSCRIPTIONS, null, "delete");
+        }
+        return deleted > 0;
+    }
+
+    /**
+     * Отменяет все подписки чата.
+     *
+     * @param chatId идентификатор чата
+     */
+    public void unsubscribeAll(String chatId) {
+        int deleted;
+        synchronized (writeLock) {
+            deleted = jdbcTemplate.update("DELETE FROM telegram_subscriptions WHERE chat_id = ?", chatId);
+            index.values().forEach(chats -> chats.remove(chatId));
+        }
+        if (deleted > 0) {
+            invalidationBus.publish(InvalidationBus.TOPIC_SUBSCRIPTIONS, null, "delete");
+        }
+    }
+
+    /**
+     * Возвращает получателей события.
+     *
+     * @param eventType тип события
+     * @param brand     марка автомобиля
+     * @return множество идентификаторов чатов
+     */
+    public Set<String> recipients(String eventType, String brand) {
+        String type = normalizeType(eventType);
+        String brandKey = normalizeBrand(brand);
+        Map<String, Set<String>> index = this.index;
+        Set<String> result = new HashSet<>();
+        for (String key : new String[]{key(type, brandKey), key(type, ANY), key(ANY, brandKey), key(ANY, ANY)}) {
+            Set<String> chats = index.get(key);
+            if (chats != null) {
+                result.addAll(chats);
+            }
+        }
+        result.removeIf(chatId -> !chatAllowlist.isAllowed(chatId));
+        return result;
+    }
+
+    /**
+     * Возвращает количество уникальных подписчиков.
+     *
+     * @return количество чатов с подписками
+     */
+    public int getSubscriberCount() {
+        Set<String> chats = new HashSet<>();
+        index.values().forEach(chats::addAll);
+        return chats.size();
+    }
+
+    private static void indexAdd(Map<String, Set<String>> index, String chatId, String eventType, String brand) {
+        index.computeIfAbsent(key(eventType, brand), k -> ConcurrentHashMap.newKeySet()).add(chatId);
+    }
+
+    private static String key(String eventType, String brand) {
+        return eventType + "|" + brand;
+    }
+
+    private static String normalizeType(String eventType) {
+        if (eventType == null || eventType.isBlank() || ANY.equals(eventType) || "all".equalsIgnoreCase(eventType)) {
+            return ANY;
+        }
+        String type = eventType.trim().toLowerCase(Locale.ROOT);
+        if (!EVENT_TYPES.contains(type)) {
+            throw new IllegalArgumentException("Неизвестный тип события: " + eventType);
+        }
+        return type;
+    }
+
+    private static String normalizeBrand(String brand) {
+        return brand == null || brand.isBlank() || ANY.equals(brand) ? ANY : brand.trim().toUpperCase(Locale.ROOT);
+    }
+}
@@ -1,5 +1,7 @@
 package ru.evtu.kursovoy_new.telegram;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
 import org.telegram.telegrambots.meta.api.objects.Message;
@@ -9,6 +11,7 @@ import ru.evtu.kursovoy_new.BotTokenConfig;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
 import java.io.IOException;
+import java.util.function.Consumer;
 
 /**
  * Сервис для взаимодействия с Telegram API.
@@ -19,8 +22,12 @@ import java.io.IOException;
 @Service
 public class TelegramBotService extends TelegramLongPollingBot {
 
+    private static final Logger log = LoggerFactory.getLogger(TelegramBotService.class);
+
     private final String botUsername = "VKtoTGconvertbot";
     private final String botToken;
+    private volatile Consumer<Update> updateHandler; // Обработчик входящих сообщений
+    private volatile NotificationFanout notificationFanout; // Рассылка уведомлений подписчикам
 
     /**
      * Конструктор, загружающий токен из конфигурационного файла.
@@ -42,8 +49,31 @@ public class TelegramBotService extends TelegramLongPollingBot {
         return botToken;
     }
 
+    /**
+     * Устанавливает обработчик входящих обновлений (например, маршрутизатор команд).
+     *
+     * @param updateHandler обработчик обновлений
+     */
+    public void setUpdateHandler(Consumer<Update> updateHandler) {
+        this.updateHandler = updateHandler;
+    }
+
+    /**
+     * Устанавливает рассылку уведомлений подписчикам.
+     *
+     * @param notificationFanout рассылка уведомлений
+     */
+    public void setNotificationFanout(NotificationFanout notificationFanout) {
+        this.notificationFanout = notificationFanout;
+    }
+
     @Override
     public void onUpdateReceived(Update update) {
+        Consumer<Update> handler = updateHandler;
+        if (handler != null) {
+            handler.accept(update); // Обработка выполняется вне потока опроса Telegram
+            return;
+        }
         if (update.hasMessage()) {
             Message message = update.getMessage();
             if (message.hasText()) {
@@ -53,6 +83,29 @@ public class TelegramBotService extends TelegramLongPollingBot {
         }
     }
 
+    /**
+     * Отправляет текстовое сообщение в указанный чат.
+     *
+     * @param chatId      идентификатор чата
+     * @param messageText текст сообщения
+     * @return true, если сообщение отправлено
+     */
+    public boolean sendText(String chatId, String messageText) {
+        SendMessage message = new SendMessage();
+        message.setChatId(chatId);
+        message.setText(messageText);
+
+        try {
+            execute(message); // Отправка сообщения в Telegram
+            System.out.println("Сообщение отправлено: " + messageText);
+            return true;
+        } catch (TelegramApiException e) {
+            System.err.println("Ошибка при отправке сообщения: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
     /**
      * Отправляет уведомление о обновлении информации об автомобиле.
      *
@@ -63,24 +116,12 @@ public class TelegramBotService extends TelegramLongPollingBot {
      * @param changedField  название поля, которое было изменено
      */
     public void sendCarUpdateNotification(String carBrand, int carYear, String registrationDate, String ownerName, String changedField) {
-        String chatId = "248217884";
-
         String messageText = String.format(
                 "Автомобиль отредактирован:\nМарка: %s\nГод выпуска: %d\nДата регистрации: %s\nВладелец: %s\nИзменено: %s",
                 carBrand, carYear, registrationDate, ownerName, changedField
         );
 
-        SendMessage message = new SendMessage();
-        message.setChatId(chatId);
-        message.setText(messageText);
-
-        try {
-            execute(message); // Отправка сообщения в Telegram
-            System.out.println("Сообщение отправлено: " + messageText);
-        } catch (TelegramApiException e) {
-            System.err.println("Ошибка при отправке сообщения: " + e.getMessage());
-            e.printStackTrace();
-        }
+        publish("update", carBrand, messageText);
     }
     /**
      * Отправляет уведомление о добавлении автомобиля.
@@ -91,24 +132,12 @@ public class TelegramBotService extends TelegramLongPollingBot {
      * @param ownerName      имя владельца автомобиля
      */
     public void sendCarAdditionNotification(String carBrand, int carYear, String registrationDate, String ownerName) {
-        String chatId = "248217884";
-
         String messageText = String.format(
                 "Автомобиль добавлен:\nМарка: %s\nГод выпуска: %d\nДата регистрации: %s\nВладелец: %s",
                 carBrand, carYear, registrationDate, ownerName
         );
 
-        SendMessage message = new SendMessage();
-        message.setChatId(chatId);
-        message.setText(messageText);
-
-        try {
-            execute(message); // Отправка сообщения в Telegram
-            System.out.println("Сообщение отправлено: " + messageText);
-        } catch (TelegramApiException e) {
-            System.err.println("Ошибка при отправке сообщения: " + e.getMessage());
-            e.printStackTrace();
-        }
+        publish("add", carBrand, messageText);
     }
 
     /**
@@ -119,24 +148,25 @@ public class TelegramBotService extends TelegramLongPollingBot {
      * @param ownerName      имя владельца автомобиля
      */
     public void sendCarDeletionNotification(String carBrand, String registrationDate, String ownerName) {
-        String chatId = "248217884";
-
         String messageText = String.format(
                 "Автомобиль удален:\nМарка: %s\nДата регистрации: %s\nВладелец: %s",
                 carBrand, registrationDate, ownerName
         );
 
-        SendMessage message = new SendMessage();
-        message.setChatId(chatId);
-        message.setText(messageText);
+        publish("delete", carBrand, messageText);
+    }
 
-        try {
-            execute(message); // Отправка сообщения в Telegram
-            System.out.println("Сообщение отправлено: " + messageText);
-        } catch (TelegramApiException e) {
-            System.err.println("Ошибка при отправке сообщения: " + e.getMessage());
-            e.printStackTrace();
+    /**
+     * Передаёт уведомление в рассылку подписчикам события. Отправка выполняется
+     * асинхронно, поэтому вызывающий поток не ждёт ответа Telegram.
+     */
+    private void publish(String eventType, String carBrand, String messageText) {
+        NotificationFanout fanout = notificationFanout;
+        if (fanout == null) {
+            log.warn("Рассылка уведомлений не настроена, сообщение не отправлено");
+            return;
         }
+        fanout.publish(eventType, carBrand, messageText);
     }
 }
 
@@ -0,0 +1,43 @@
+package ru.evtu.kursovoy_new.telegram;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Список чатов, которым разрешено работать с ботом.
+ *
+ * Бот выдаёт данные об автомобилях и владельцах, которые в веб-интерфейсе доступны только
+ * после входа, поэтому команды принимаются лишь из перечисленных в telegram.allowed-chat-ids
+ * чатов. Если список не задан, разрешён только чат по умолчанию.
+ */
+@Component
+public class TelegramChatAllowlist {
+
+    private final Set<String> allowedChatIds;
+
+    public TelegramChatAllowlist(@Value("${telegram.allowed-chat-ids:}") List<String> allowedChatIds,
+                                 @Value("${telegram.default-chat-id:}") String defaultChatId) {
+        Set<String> chats = allowedChatIds.stream()
+                .map(String::trim)
+                .filter(chatId -> !chatId.isEmpty())
+                .collect(Collectors.toSet());
+        if (chats.isEmpty() && !defaultChatId.isBlank()) {
+            chats = Set.of(defaultChatId.trim());
+        }
+        this.allowedChatIds = Set.copyOf(chats);
+    }
+
+    /**
+     * Проверяет, разрешён ли чат.
+     *
+     * @param chatId идентификатор чата
+     * @return true, если чату разрешено работать с ботом
+     */
+    public boolean isAllowed(String chatId) {
+        return chatId != null && allowedChatIds.contains(chatId);
+    }
+}
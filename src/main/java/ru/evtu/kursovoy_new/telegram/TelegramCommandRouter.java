@@ -0,0 +1,321 @@
+package ru.evtu.kursovoy_new.telegram;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import ru.evtu.kursovoy_new.api.TokenBucket;
+import ru.evtu.kursovoy_new.cluster.ClusterInvalidationListener;
+import ru.evtu.kursovoy_new.cluster.Invalidation;
+import ru.evtu.kursovoy_new.second.*;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Маршрутизатор команд Telegram-бота.
+ *
+ * Обновления обрабатываются в ограниченном пуле потоков с ограниченной очередью, поэтому
+ * всплеск сообщений не может занять все ресурсы приложения: лишние обновления отбрасываются.
+ * Для каждого чата действует ограничение частоты. Ответ на /stats строится по аналитическому
+ * кубу в памяти и пересчитывается только после изменений, а результаты /find и /owner
+ * кэшируются на короткое время и сбрасываются при любой записи автомобилей.
+ * Команды выполняются только для чатов из {@link TelegramChatAllowlist}.
+ */
+@Component
+public class TelegramCommandRouter implements CarChangeListener, ClusterInvalidationListener {
+
+    private static final Logger log = LoggerFactory.getLogger(TelegramCommandRouter.class);
+
+    private static final int MAX_LISTED_CARS = 10;
+    private static final int TOP_BRANDS = 5;
+
+    private final TelegramBotService telegramBotService;
+    private final CarService carService;
+    private final CarAnalyticsCube carAnalyticsCube;
+    private final OwnerDirectory ownerDirectory;
+    private final SubscriptionRegistry subscriptionRegistry;
+    private final TelegramChatAllowlist chatAllowlist;
+
+    private final ThreadPoolExecutor executor;
+    private final Map<String, TokenBucket> chatLimits = new ConcurrentHashMap<>();
+    private final double chatCapacity;
+    private final double chatPerSecond;
+    private final long cacheTtlNanos;
+    private final Map<String, CachedAnswer> answers;
+
+    private volatile String statsText; // Предварительно подготовленный ответ на /stats
+    private volatile boolean statsDirty = true;
+
+    public TelegramCommandRouter(TelegramBotService telegramBotService,
+                                 CarService carService,
+                                 CarAnalyticsCube carAnalyticsCube,
+                                 OwnerDirectory ownerDirectory,
+                                 SubscriptionRegistry subscriptionRegistry,
+                                 TelegramChatAllowlist chatAllowlist,
+                                 @Value("${telegram.commands.threads:2}") int threads,
+                                 @Value("${telegram.commands.queue-size:100}") int queueSize,
+                                 @Value("${telegram.commands.chat-capacity:3}") double chatCapacity,
+                                 @Value("${telegram.commands.chat-per-second:0.5}") double chatPerSecond,
+                                 @Value("${telegram.commands.cache-ttl-seconds:60}") long cacheTtlSeconds,
+                                 @Value("${telegram.commands.cache-size:256}") int cacheSize) {
+        this.telegramBotService = telegramBotService;
+        this.carService = carService;
+        this.carAnalyticsCube = carAnalyticsCube;
+        this.ownerDirectory = ownerDirectory;
+        this.subscriptionRegistry = subscriptionRegistry;
+        this.chatAllowlist = chatAllowlist;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "telegram-commands");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.chatCapacity = chatCapacity;
+        this.chatPerSecond = chatPerSecond;
+        this.cacheTtlNanos = TimeUnit.SECONDS.toNanos(cacheTtlSeconds);
+        this.answers = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedAnswer> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    @PostConstruct
+    public void register() {
+        telegramBotService.setUpdateHandler(this::submit);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Принимает обновление из потока опроса Telegram и ставит его в очередь обработки.
+     *
+     * @param update обновление Telegram
+     */
+    public void submit(Update update) {
+        if (!update.hasMessage() || !update.getMessage().hasText()) {
+            return;
+        }
+        Message message = update.getMessage();
+        String chatId = String.valueOf(message.getChatId());
+        if (!chatAllowlist.isAllowed(chatId)) {
+            // Проверка до ограничителя и очереди: посторонний чат не должен расходовать ни память, ни ответы бота
+            log.debug("Команда из неразрешённого чата {} отброшена", chatId);
+            return;
+        }
+        if (chatLimits.computeIfAbsent(chatId, id -> new TokenBucket(chatCapacity, chatPerSecond)).tryAcquire() > 0) {
+            return; // Чат превысил допустимую частоту команд: молча отбрасываем
+        }
+        try {
+            executor.execute(() -> handle(chatId, message.getText().trim()));
+        } catch (RejectedExecutionException e) {
+            log.warn("Очередь команд Telegram переполнена, сообщение из чата {} отброшено", chatId);
+        }
+    }
+
+    @Override
+    public void onCarAdded(Car car) {
+        invalidate();
+    }
+
+    @Override
+    public void onCarUpdated(Car before, Car after) {
+        invalidate();
+    }
+
+    @Override
+    public void onCarDeleted(Car car) {
+        invalidate();
+    }
+
+    @Override
+    public void onRemoteInvalidations(List<Invalidation> invalidations) {
+        invalidate();
+    }
+
+    /**
+     * Сбрасывает кэш ответов и помечает статистику для пересчёта.
+     */
+    public void invalidate() {
+        statsDirty = true;
+        answers.clear();
+    }
+
+    /**
+     * Пересчитывает ответ на /stats, если данные менялись.
+     */
+    @Scheduled(fixedDelayString = "${telegram.commands.stats-refresh-ms:10000}")
+    public void refreshStats() {
+        if (statsDirty) {
+            statsDirty = false;
+            statsText = buildStats();
+        }
+    }
+
+    /**
+     * Удаляет ограничители чатов, давно не присылавших команды.
+     */
+    @Scheduled(fixedDelay = 600_000)
+    public void evictIdleChats() {
+        long idleSince = System.nanoTime() - TimeUnit.MINUTES.toNanos(10);
+        chatLimits.values().removeIf(bucket -> bucket.getLastUsedNanos() - idleSince < 0);
+    }
+
+    private void handle(String chatId, String text) {
+        String[] parts = text.split("\\s+", 2);
+        String command = parts[0].toLowerCase(Locale.ROOT);
+        int mention = command.indexOf('@');
+        if (mention > 0) {
+            command = command.substring(0, mention); // /stats@BotName -> /stats
+        }
+        String argument = parts.length > 1 ? parts[1].trim() : "";
+
+        String reply;
+        try {
+            reply = switch (command) {
+                case "/stats" -> stats();
+                case "/find" -> argument.isEmpty() ? "Укажите марку: /find <марка>"
+                        : cached("find|" + argument.toUpperCase(Locale.ROOT), () -> find(argument));
+                case "/owner" -> argument.isEmpty() ? "Укажите имя владельца: /owner <имя>"
+                        : cached("owner|" + OwnerDirectory.normalize(argument), () -> owner(argument));
+                case "/subscribe" -> subscribe(chatId, argument);
+                case "/unsubscribe" -> unsubscribe(chatId, argument);
+                case "/start", "/help" -> help();
+                default -> null;
+            };
+        } catch (IllegalArgumentException e) {
+            reply = e.getMessage();
+        } catch (RuntimeException e) {
+            log.warn("Ошибка обработки команды {} из чата {}", command, chatId, e);
+            reply = "Не удалось выполнить команду, попробуйте позже.";
+        }
+        if (reply != null) {
+            telegramBotService.sendText(chatId, reply);
+        }
+    }
+
+    private String stats() {
+        String text = statsText;
+        if (text == null || statsDirty) {
+            refreshStats();
+            text = statsText;
+        }
+        return text;
+    }
+
+    private String buildStats() {
+        CarAnalyticsCube.CubeResult byBrand = carAnalyticsCube.query(null, null, null, null, null,
+                List.of(CarAnalyticsCube.Dimension.BRAND));
+        YearMonth month = YearMonth.from(LocalDate.now());
+        CarAnalyticsCube.CubeResult thisMonth = carAnalyticsCube.query(null, null, null, month, month, List.of());
+
+        StringBuilder text = new StringBuilder();
+        text.append("Всего автомобилей: ").append(byBrand.total()).append('\n');
+        text.append("Зарегистрировано в этом месяце: ").append(thisMonth.total()).append('\n');
+        text.append("Популярные марки:");
+        byBrand.groups().entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(TOP_BRANDS)
+                .forEach(entry -> text.append("\n• ").append(entry.getKey()).append(": ").append(entry.getValue()));
+        return text.toString();
+    }
+
+    private String find(String brand) {
+        List<Car> cars = carService.findByBrand(brand);
+        if (cars.isEmpty()) {
+            return "Автомобили марки " + brand + " не найдены.";
+        }
+        return formatCars("Автомобили марки " + brand + " (" + cars.size() + "):", cars);
+    }
+
+    private String owner(String name) {
+        Optional<Owner> owner = ownerDirectory.find(name);
+        if (owner.isEmpty()) {
+            return "Владелец " + name + " не найден.";
+        }
+        List<Car> cars = carService.findByOwnerId(owner.get().getId());
+        return formatCars("Владелец " + owner.get().getName() + ", автомобилей: " + owner.get().getCarCount(), cars);
+    }
+
+    /**
+     * /subscribe [add|update|delete|all] [марка] — подписка на уведомления.
+     */
+    private String subscribe(String chatId, String argument) {
+        String[] args = subscriptionArgs(argument);
+        subscriptionRegistry.subscribe(chatId, args[0], args[1]);
+        return "Подписка оформлена: " + describe(args[0], args[1]);
+    }
+
+    /**
+     * /unsubscribe [add|update|delete|all] [марка] — отмена подписки; без аргументов отменяет все.
+     */
+    private String unsubscribe(String chatId, String argument) {
+        if (argument.isEmpty()) {
+            subscriptionRegistry.unsubscribeAll(chatId);
+            return "Все подписки отменены.";
+        }
+        String[] args = subscriptionArgs(argument);
+        return subscriptionRegistry.unsubscribe(chatId, args[0], args[1])
+                ? "Подписка отменена: " + describe(args[0], args[1])
+                : "Такой подписки нет.";
+    }
+
+    private static String[] subscriptionArgs(String argument) {
+        String[] parts = argument.isEmpty() ? new String[0] : argument.split("\\s+", 2);
+        String type = parts.length > 0 ? parts[0] : SubscriptionRegistry.ANY;
+        String brand = parts.length > 1 ? parts[1] : SubscriptionRegistry.ANY;
+        return new String[]{type, brand};
+    }
+
+    private static String describe(String type, String brand) {
+        String events = SubscriptionRegistry.ANY.equals(type) || "all".equalsIgnoreCase(type) ? "все события" : type;
+        String brands = SubscriptionRegistry.ANY.equals(brand) ? "все марки" : brand;
+        return events + ", " + brands;
+    }
+
+    private static String formatCars(String header, List<Car> cars) {
+        StringBuilder text = new StringBuilder(header);
+        cars.stream().limit(MAX_LISTED_CARS).forEach(car -> text.append("\n• ")
+                .append(car.getBrand()).append(", ")
+                .append(car.getReleaseYear()).append(" г., рег. ")
+                .append(car.getRegDate() != null ? car.getRegDate() : "—").append(", ")
+                .append(car.getOwnerName() != null ? car.getOwnerName() : "—"));
+        if (cars.size() > MAX_LISTED_CARS) {
+            text.append("\n… и ещё ").append(cars.size() - MAX_LISTED_CARS);
+        }
+        return text.toString();
+    }
+
+    private static String help() {
+        return "Команды:\n/stats — статистика автомобилей\n/find <марка> — автомобили марки\n/owner <имя> — автомобили владельца"
+                + "\n/subscribe [add|update|delete|all] [марка] — подписаться на уведомления"
+                + "\n/unsubscribe [тип] [марка] — отменить подписку";
+    }
+
+    private String cached(String key, Supplier<String> loader) {
+        long now = System.nanoTime();
+        CachedAnswer cached = answers.get(key);
+        if (cached != null && cached.expiresAtNanos() - now > 0) {
+            return cached.text();
+        }
+        String text = loader.get();
+        answers.put(key, new CachedAnswer(text, now + cacheTtlNanos));
+        return text;
+    }
+
+    private record CachedAnswer(String text, long expiresAtNanos) {
+    }
+}
@@ -0,0 +1,87 @@
+package ru.evtu.kursovoy_new.web;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import ru.evtu.kursovoy_new.second.CarPackCodec;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+/**
+ * Преобразователь списков автомобилей, моделей и марок в формат {@link CarPackCodec}.
+ *
+ * Используется, когда клиент явно запрашивает application/x-car-pack в заголовке Accept.
+ * Если тип элементов неизвестен на этапе выбора преобразователя (ResponseEntity&lt;?&gt;),
+ * он проверяется при записи.
+ */
+public class CarPackHttpMessageConverter extends AbstractGenericHttpMessageConverter<Collection<?>> {
+
+    public static final MediaType CAR_PACK = MediaType.parseMediaType(CarPackCodec.MEDIA_TYPE);
+
+    public CarPackHttpMessageConverter() {
+        super(CAR_PACK);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Collection.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return canRead(mediaType) && supportsElements(type);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return canWrite(mediaType) && supports(clazz) && supportsElements(type != null ? type : clazz);
+    }
+
+    @Override
+    public Collection<?> read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        return read(elementType(type), inputMessage);
+    }
+
+    @Override
+    protected Collection<?> readInternal(Class<? extends Collection<?>> clazz, HttpInputMessage inputMessage)
+            throws IOException {
+        return read(null, inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Collection<?> items, Type type, HttpOutputMessage outputMessage) throws IOException {
+        try {
+            CarPackCodec.write(items, outputMessage.getBody());
+        } catch (IllegalArgumentException e) {
+            throw new HttpMessageNotWritableException(e.getMessage(), e);
+        }
+    }
+
+    private Collection<?> read(Class<?> elementType, HttpInputMessage inputMessage) throws IOException {
+        try {
+            return CarPackCodec.read(inputMessage.getBody(), elementType);
+        } catch (IOException e) {
+            throw new HttpMessageNotReadableException("Некорректный поток " + CarPackCodec.MEDIA_TYPE + ": "
+                    + e.getMessage(), e, inputMessage);
+        }
+    }
+
+    private boolean supportsElements(Type type) {
+        ResolvableType collection = ResolvableType.forType(type).asCollection();
+        if (collection == ResolvableType.NONE) {
+            return false;
+        }
+        Class<?> elementType = collection.resolveGeneric(0);
+        return elementType == null || elementType == Object.class || CarPackCodec.supports(elementType);
+    }
+
+    private static Class<?> elementType(Type type) {
+        return ResolvableType.forType(type).asCollection().resolveGeneric(0);
+    }
+}
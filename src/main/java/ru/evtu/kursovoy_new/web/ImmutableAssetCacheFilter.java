@@ -0,0 +1,39 @@
+package ru.evtu.kursovoy_new.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+/**
+ * Фильтр заголовков кэширования для статических файлов с отпечатком содержимого.
+ *
+ * Цепочка ресурсов Spring добавляет к имени файла MD5 его содержимого (style-&lt;md5&gt;.css),
+ * поэтому по такому адресу всегда отдаётся одно и то же содержимое и браузер может хранить
+ * его бессрочно, не перепроверяя. Файлы без отпечатка получают обычные заголовки.
+ * Spring Security не перезаписывает уже установленный Cache-Control.
+ */
+public class ImmutableAssetCacheFilter extends OncePerRequestFilter {
+
+    private static final Pattern FINGERPRINTED = Pattern.compile("-[0-9a-f]{32}\\.[^/]+$");
+
+    private final String cacheControl;
+
+    public ImmutableAssetCacheFilter(long maxAgeSeconds) {
+        this.cacheControl = "public, max-age=" + maxAgeSeconds + ", immutable";
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (FINGERPRINTED.matcher(request.getRequestURI()).find()) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        }
+        chain.doFilter(request, response);
+    }
+}
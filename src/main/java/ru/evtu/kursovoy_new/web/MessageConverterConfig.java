@@ -0,0 +1,24 @@
+package ru.evtu.kursovoy_new.web;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Подключение двоичных форматов ответов API.
+ *
+ * CBOR (application/cbor) и Smile (application/x-jackson-smile) подключаются Spring MVC
+ * автоматически при наличии соответствующих модулей Jackson. Формат application/x-car-pack
+ * добавляется последним: при Accept: *&#47;* выбирается первый подходящий преобразователь,
+ * и ответом по умолчанию должен оставаться JSON.
+ */
+@Configuration
+public class MessageConverterConfig implements WebMvcConfigurer {
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new CarPackHttpMessageConverter());
+    }
+}
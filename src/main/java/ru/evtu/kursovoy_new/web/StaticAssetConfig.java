@@ -0,0 +1,33 @@
+package ru.evtu.kursovoy_new.web;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Конфигурация раздачи статических файлов.
+ *
+ * Версионирование по содержимому и выбор заранее сжатых вариантов (.br, .gz) включены
+ * свойствами spring.web.resources.chain.*; ссылки в шаблонах, построенные через @{...},
+ * переписываются на адреса с отпечатком. Здесь добавляются долгоживущие заголовки
+ * кэширования для таких адресов.
+ */
+@Configuration
+public class StaticAssetConfig {
+
+    /**
+     * Порядок фильтра: перед Spring Security (-100), чтобы заголовок был установлен до неё.
+     */
+    private static final int CACHE_FILTER_ORDER = -120;
+
+    @Bean
+    public FilterRegistrationBean<ImmutableAssetCacheFilter> immutableAssetCacheFilter(
+            @Value("${static.assets.max-age-seconds:31536000}") long maxAgeSeconds) {
+        FilterRegistrationBean<ImmutableAssetCacheFilter> registration =
+                new FilterRegistrationBean<>(new ImmutableAssetCacheFilter(maxAgeSeconds));
+        registration.addUrlPatterns("/css/*", "/vendor/*");
+        registration.setOrder(CACHE_FILTER_ORDER);
+        return registration;
+    }
+}
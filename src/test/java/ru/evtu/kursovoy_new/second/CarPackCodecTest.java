@@ -0,0 +1,152 @@
+package ru.evtu.kursovoy_new.second;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка формата application/x-car-pack: запись и чтение должны давать те же значения.
+ */
+class CarPackCodecTest {
+
+    @Test
+    void roundTripsCarsWithNullFields() throws IOException {
+        Car full = car(10L, "TOYOTA", 2015, LocalDate.of(2020, 3, 14), "Иванов И.И.", 7L, 1L, 12L);
+        Car empty = new Car(); // Все поля null, включая идентификатор
+        Car partial = car(11L, null, 1999, null, null, null, null, null);
+
+        List<Object> decoded = roundTrip(List.of(full, empty, partial), Car.class);
+
+        assertEquals(3, decoded.size());
+        assertCarEquals(full, (Car) decoded.get(0));
+        assertCarEquals(empty, (Car) decoded.get(1));
+        assertCarEquals(partial, (Car) decoded.get(2));
+    }
+
+    @Test
+    void roundTripsUnorderedIdsWithNegativeDeltas() throws IOException {
+        List<Car> cars = new ArrayList<>();
+        for (long id : new long[]{1_000_000L, 5L, 9_007_199_254_740_991L, 0L, -3L, 42L}) {
+            cars.add(car(id, "KIA", 2010, LocalDate.of(1965, 1, 1), "Владелец", null, null, null));
+        }
+
+        List<Object> decoded = roundTrip(cars, Car.class);
+
+        assertEquals(cars.size(), decoded.size());
+        for (int i = 0; i < cars.size(); i++) {
+            assertCarEquals(cars.get(i), (Car) decoded.get(i));
+        }
+    }
+
+    @Test
+    void keepsDecodingAfterDictionaryOverflow() throws IOException {
+        // Уникальных марок больше, чем помещается в словарь, затем повторы ранних и поздних марок
+        int unique = 5000;
+        List<Car> cars = new ArrayList<>();
+        for (int i = 0; i < unique; i++) {
+            cars.add(car((long) i, "BRAND-" + i, 2000, null, null, null, null, null));
+        }
+        for (int i : new int[]{0, 1, 4095, 4096, 4999, 0}) {
+            cars.add(car((long) (unique + cars.size()), "BRAND-" + i, 2001, null, null, null, null, null));
+        }
+
+        List<Object> decoded = roundTrip(cars, Car.class);
+
+        assertEquals(cars.size(), decoded.size());
+        for (int i = 0; i < cars.size(); i++) {
+            assertCarEquals(cars.get(i), (Car) decoded.get(i));
+        }
+    }
+
+    @Test
+    void roundTripsModelsAndBrands() throws IOException {
+        CarBrand brand = new CarBrand();
+        brand.setId(3L);
+        brand.setBrandCode("LADA");
+        brand.setBrandName("Lada");
+        brand.setBrandCyrillic("Лада");
+        brand.setPopularBrand(1);
+        brand.setCountry("Россия");
+        CarModel model = new CarModel();
+        model.setId(30L);
+        model.setModelCode("VESTA");
+        model.setCarClass("C");
+        model.setYearFrom(2015);
+        model.setCarBrand(brand);
+
+        CarBrand decodedBrand = (CarBrand) roundTrip(List.of(brand), CarBrand.class).get(0);
+        CarModel decodedModel = (CarModel) roundTrip(List.of(model), CarModel.class).get(0);
+
+        assertEquals("Лада", decodedBrand.getBrandCyrillic());
+        assertEquals("Россия", decodedBrand.getCountry());
+        assertEquals(1, decodedBrand.getPopularBrand());
+        assertEquals("VESTA", decodedModel.getModelCode());
+        assertNull(decodedModel.getModelName());
+        assertEquals(2015, decodedModel.getYearFrom());
+        assertNull(decodedModel.getYearTo());
+        assertEquals(3L, decodedModel.getCarBrand().getId());
+        assertEquals("LADA", decodedModel.getCarBrand().getBrandCode());
+    }
+
+    @Test
+    void roundTripsEmptyList() throws IOException {
+        assertTrue(roundTrip(List.of(), Car.class).isEmpty());
+    }
+
+    @Test
+    void rejectsStreamOfAnotherKind() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CarPackCodec.write(List.of(new CarBrand()), out);
+
+        assertThrows(IOException.class, () -> CarPackCodec.read(new ByteArrayInputStream(out.toByteArray()), Car.class));
+    }
+
+    @Test
+    void rejectsTruncatedStream() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CarPackCodec.write(List.of(car(1L, "BMW", 2020, LocalDate.of(2021, 1, 1), "Петров", 2L, 3L, 4L)), out);
+        byte[] bytes = out.toByteArray();
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 3);
+
+        assertThrows(IOException.class, () -> CarPackCodec.read(new ByteArrayInputStream(truncated), Car.class));
+    }
+
+    private static List<Object> roundTrip(List<?> items, Class<?> type) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CarPackCodec.write(items, out);
+        return CarPackCodec.read(new ByteArrayInputStream(out.toByteArray()), type);
+    }
+
+    private static Car car(Long id, String brand, Integer releaseYear, LocalDate regDate, String ownerName,
+                           Long ownerId, Long brandId, Long modelId) {
+        Car car = new Car();
+        car.setId(id);
+        car.setBrand(brand);
+        car.setReleaseYear(releaseYear);
+        car.setRegDate(regDate);
+        car.setOwnerName(ownerName);
+        car.setOwnerId(ownerId);
+        car.setBrandId(brandId);
+        car.setModelId(modelId);
+        return car;
+    }
+
+    private static void assertCarEquals(Car expected, Car actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getBrand(), actual.getBrand());
+        assertEquals(expected.getReleaseYear(), actual.getReleaseYear());
+        assertEquals(expected.getRegDate(), actual.getRegDate());
+        assertEquals(expected.getOwnerName(), actual.getOwnerName());
+        assertEquals(expected.getOwnerId(), actual.getOwnerId());
+        assertEquals(expected.getBrandId(), actual.getBrandId());
+        assertEquals(expected.getModelId(), actual.getModelId());
+    }
+}
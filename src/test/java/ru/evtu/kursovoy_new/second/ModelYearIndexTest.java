@@ -0,0 +1,101 @@
+package ru.evtu.kursovoy_new.second;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка дерева интервалов по годам выпуска: результат сравнивается с полным перебором.
+ */
+class ModelYearIndexTest {
+
+    @Test
+    void matchesLinearScanOnRandomIntervals() {
+        Random random = new Random(42);
+        for (int round = 0; round < 50; round++) {
+            List<CarModel> models = new ArrayList<>();
+            for (int i = 0; i < 1 + random.nextInt(60); i++) {
+                // Каждая пятая граница отсутствует: интервал открыт с этой стороны
+                Integer from = random.nextInt(5) == 0 ? null : 1950 + random.nextInt(80);
+                Integer to = random.nextInt(5) == 0 ? null : 1950 + random.nextInt(80);
+                models.add(model((long) i, from, to));
+            }
+            ModelYearIndex index = new ModelYearIndex(models);
+            for (int year = 1940; year <= 2040; year++) {
+                assertEquals(scan(models, year), ids(index.findByYear(year)), "год " + year);
+            }
+        }
+    }
+
+    @Test
+    void includesBoundaryYears() {
+        ModelYearIndex index = new ModelYearIndex(List.of(model(1L, 2000, 2005)));
+
+        assertEquals(List.of(), ids(index.findByYear(1999)));
+        assertEquals(List.of(1L), ids(index.findByYear(2000)));
+        assertEquals(List.of(1L), ids(index.findByYear(2005)));
+        assertEquals(List.of(), ids(index.findByYear(2006)));
+    }
+
+    @Test
+    void treatsMissingBoundsAsOpen() {
+        ModelYearIndex index = new ModelYearIndex(List.of(
+                model(1L, null, 1990),
+                model(2L, 2010, null),
+                model(3L, null, null)));
+
+        assertEquals(List.of(1L, 3L), ids(index.findByYear(Integer.MIN_VALUE)));
+        assertEquals(List.of(3L), ids(index.findByYear(2000)));
+        assertEquals(List.of(2L, 3L), ids(index.findByYear(Integer.MAX_VALUE)));
+    }
+
+    @Test
+    void dropsIntervalsThatEndBeforeTheyStart() {
+        ModelYearIndex index = new ModelYearIndex(List.of(model(1L, 2005, 2000)));
+
+        assertTrue(index.isEmpty());
+        for (int year = 1999; year <= 2006; year++) {
+            assertEquals(List.of(), index.findByYear(year));
+        }
+    }
+
+    @Test
+    void emptyIndexFindsNothing() {
+        ModelYearIndex index = new ModelYearIndex(List.of());
+
+        assertTrue(index.isEmpty());
+        assertEquals(List.of(), index.findByYear(2000));
+    }
+
+    private static List<Long> scan(List<CarModel> models, int year) {
+        List<CarModel> result = new ArrayList<>();
+        for (CarModel model : models) {
+            if (ModelYearIndex.contains(model, year)) {
+                result.add(model);
+            }
+        }
+        return ids(result);
+    }
+
+    private static List<Long> ids(List<CarModel> models) {
+        List<Long> ids = new ArrayList<>();
+        for (CarModel model : models) {
+            ids.add(model.getId());
+        }
+        ids.sort(Comparator.naturalOrder());
+        return ids;
+    }
+
+    private static CarModel model(Long id, Integer yearFrom, Integer yearTo) {
+        CarModel model = new CarModel();
+        model.setId(id);
+        model.setYearFrom(yearFrom);
+        model.setYearTo(yearTo);
+        return model;
+    }
+}
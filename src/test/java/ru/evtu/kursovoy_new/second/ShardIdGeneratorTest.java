@@ -0,0 +1,51 @@
+package ru.evtu.kursovoy_new.second;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка генератора идентификаторов шардированного хранилища.
+ */
+class ShardIdGeneratorTest {
+
+    /** Number.MAX_SAFE_INTEGER: идентификаторы передаются в JavaScript без округления. */
+    private static final long MAX_SAFE_INTEGER = (1L << 53) - 1;
+
+    @Test
+    void issuesIncreasingIdsWithinJavaScriptSafeRange() {
+        ShardIdGenerator generator = new ShardIdGenerator(1023);
+        long previous = -1;
+        // Больше 4096 идентификаторов подряд: счётчик секунды исчерпывается и занимается следующая секунда
+        for (int i = 0; i < 10_000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous, "идентификаторы должны возрастать");
+            assertTrue(id <= MAX_SAFE_INTEGER, "идентификатор выходит за Number.MAX_SAFE_INTEGER: " + id);
+            previous = id;
+        }
+    }
+
+    @Test
+    void encodesNodeSoThatNodesNeverCollide() {
+        ShardIdGenerator first = new ShardIdGenerator(1);
+        ShardIdGenerator second = new ShardIdGenerator(2);
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 5_000; i++) {
+            long a = first.nextId();
+            long b = second.nextId();
+            assertEquals(1, (a >> 12) & 1023);
+            assertEquals(2, (b >> 12) & 1023);
+            assertTrue(ids.add(a));
+            assertTrue(ids.add(b));
+        }
+    }
+
+    @Test
+    void rejectsNodeOutsideRange() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardIdGenerator(-1));
+        assertThrows(IllegalArgumentException.class, () -> new ShardIdGenerator(1024));
+    }
+}